@@ -1,5 +1,9 @@
 package com.synectiks.search.config;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 /**
@@ -11,4 +15,287 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 @ConfigurationProperties(prefix = "application", ignoreUnknownFields = false)
 public class ApplicationProperties {
 
+	private final IndexCatalog indexCatalog = new IndexCatalog();
+
+	private final QueryCache queryCache = new QueryCache();
+
+	private final Bulk bulk = new Bulk();
+
+	private final EventIndexer eventIndexer = new EventIndexer();
+
+	private final AsyncSearch asyncSearch = new AsyncSearch();
+
+	public IndexCatalog getIndexCatalog() {
+		return indexCatalog;
+	}
+
+	public QueryCache getQueryCache() {
+		return queryCache;
+	}
+
+	public Bulk getBulk() {
+		return bulk;
+	}
+
+	public EventIndexer getEventIndexer() {
+		return eventIndexer;
+	}
+
+	public AsyncSearch getAsyncSearch() {
+		return asyncSearch;
+	}
+
+	/**
+	 * Properties of cached elastic indices catalog.
+	 */
+	public static class IndexCatalog {
+
+		// Interval in millis to reload indices from elastic
+		private long refreshInterval = 60000;
+		// Patterns of indices created with normalized keys, empty to disable
+		private List<String> keyTemplatePatterns = new ArrayList<>(Arrays.asList("*"));
+
+		public long getRefreshInterval() {
+			return refreshInterval;
+		}
+
+		public void setRefreshInterval(long refreshInterval) {
+			this.refreshInterval = refreshInterval;
+		}
+
+		public List<String> getKeyTemplatePatterns() {
+			return keyTemplatePatterns;
+		}
+
+		public void setKeyTemplatePatterns(List<String> keyTemplatePatterns) {
+			this.keyTemplatePatterns = keyTemplatePatterns;
+		}
+	}
+
+	/**
+	 * Properties of cached query results.
+	 */
+	public static class QueryCache {
+
+		// Max estimated size in bytes of cached results
+		private long maxBytes = 64 * 1024 * 1024;
+		// Max age in millis of a cached result
+		private long staleness = 5000;
+		// Max number of date histograms with cached closed buckets
+		private int histogramEntries = 1000;
+		// Interval in millis to rescan whole range of a cached histogram,
+		// writes of other instances are counted after it
+		private long histogramRefresh = 30 * 1000;
+		// Max number of compiled filters queries
+		private int compiledQueries = 1000;
+
+		public long getMaxBytes() {
+			return maxBytes;
+		}
+
+		public void setMaxBytes(long maxBytes) {
+			this.maxBytes = maxBytes;
+		}
+
+		public long getStaleness() {
+			return staleness;
+		}
+
+		public void setStaleness(long staleness) {
+			this.staleness = staleness;
+		}
+
+		public int getHistogramEntries() {
+			return histogramEntries;
+		}
+
+		public void setHistogramEntries(int histogramEntries) {
+			this.histogramEntries = histogramEntries;
+		}
+
+		public long getHistogramRefresh() {
+			return histogramRefresh;
+		}
+
+		public void setHistogramRefresh(long histogramRefresh) {
+			this.histogramRefresh = histogramRefresh;
+		}
+
+		public int getCompiledQueries() {
+			return compiledQueries;
+		}
+
+		public void setCompiledQueries(int compiledQueries) {
+			this.compiledQueries = compiledQueries;
+		}
+	}
+
+	/**
+	 * Properties of bulk indexing requests.
+	 */
+	public static class Bulk {
+
+		// Max number of documents in one bulk request
+		private int batchSize = 1000;
+		// Max size in bytes of one bulk request
+		private long batchBytes = 5 * 1024 * 1024;
+		// Interval in millis to flush pending documents
+		private long flushInterval = 1000;
+		// Number of bulk requests allowed in flight, adding waits beyond it
+		private int concurrentRequests = 2;
+		// Max time in millis to wait for pending bulk requests on close
+		private long closeTimeout = 5 * 60 * 1000;
+		// Parallelism of pool to parse bulk entities
+		private int parserThreads = 4;
+
+		public int getBatchSize() {
+			return batchSize;
+		}
+
+		public void setBatchSize(int batchSize) {
+			this.batchSize = batchSize;
+		}
+
+		public long getBatchBytes() {
+			return batchBytes;
+		}
+
+		public void setBatchBytes(long batchBytes) {
+			this.batchBytes = batchBytes;
+		}
+
+		public long getFlushInterval() {
+			return flushInterval;
+		}
+
+		public void setFlushInterval(long flushInterval) {
+			this.flushInterval = flushInterval;
+		}
+
+		public int getConcurrentRequests() {
+			return concurrentRequests;
+		}
+
+		public void setConcurrentRequests(int concurrentRequests) {
+			this.concurrentRequests = concurrentRequests;
+		}
+
+		public long getCloseTimeout() {
+			return closeTimeout;
+		}
+
+		public void setCloseTimeout(long closeTimeout) {
+			this.closeTimeout = closeTimeout;
+		}
+
+		public int getParserThreads() {
+			return parserThreads;
+		}
+
+		public void setParserThreads(int parserThreads) {
+			this.parserThreads = parserThreads;
+		}
+	}
+
+	/**
+	 * Properties of asynchronous event indexer, bulk requests
+	 * are sized using {@link Bulk} properties.
+	 */
+	public static class EventIndexer {
+
+		// Set true to queue events and index them in background
+		private boolean async = false;
+		// Max number of events waiting in queue
+		private int queueCapacity = 10000;
+		// Number of workers draining the queue
+		private int workers = 2;
+		// Max time in millis to wait for free space in queue
+		private long enqueueTimeout = 1000;
+
+		public boolean isAsync() {
+			return async;
+		}
+
+		public void setAsync(boolean async) {
+			this.async = async;
+		}
+
+		public int getQueueCapacity() {
+			return queueCapacity;
+		}
+
+		public void setQueueCapacity(int queueCapacity) {
+			this.queueCapacity = queueCapacity;
+		}
+
+		public int getWorkers() {
+			return workers;
+		}
+
+		public void setWorkers(int workers) {
+			this.workers = workers;
+		}
+
+		public long getEnqueueTimeout() {
+			return enqueueTimeout;
+		}
+
+		public void setEnqueueTimeout(long enqueueTimeout) {
+			this.enqueueTimeout = enqueueTimeout;
+		}
+	}
+
+	/**
+	 * Properties of executor to map async search responses.
+	 */
+	public static class AsyncSearch {
+
+		private int corePoolSize = 4;
+		private int maxPoolSize = 16;
+		// Responses waiting to be mapped, beyond it requests are rejected
+		private int queueCapacity = 10000;
+		// Threads and queue of blocking scroll and histogram searches
+		private int blockingPoolSize = 8;
+		private int blockingQueueCapacity = 100;
+
+		public int getCorePoolSize() {
+			return corePoolSize;
+		}
+
+		public void setCorePoolSize(int corePoolSize) {
+			this.corePoolSize = corePoolSize;
+		}
+
+		public int getMaxPoolSize() {
+			return maxPoolSize;
+		}
+
+		public void setMaxPoolSize(int maxPoolSize) {
+			this.maxPoolSize = maxPoolSize;
+		}
+
+		public int getQueueCapacity() {
+			return queueCapacity;
+		}
+
+		public void setQueueCapacity(int queueCapacity) {
+			this.queueCapacity = queueCapacity;
+		}
+
+		public int getBlockingPoolSize() {
+			return blockingPoolSize;
+		}
+
+		public void setBlockingPoolSize(int blockingPoolSize) {
+			this.blockingPoolSize = blockingPoolSize;
+		}
+
+		public int getBlockingQueueCapacity() {
+			return blockingQueueCapacity;
+		}
+
+		public void setBlockingQueueCapacity(int blockingQueueCapacity) {
+			this.blockingQueueCapacity = blockingQueueCapacity;
+		}
+	}
 }
@@ -14,6 +14,7 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @Configuration
 @EnableAsync
@@ -40,6 +41,49 @@ public class AsyncConfiguration implements AsyncConfigurer {
 		return new ExceptionHandlingAsyncTaskExecutor(executor);
 	}
 
+	/**
+	 * Executor to map elastic responses of async search requests, so
+	 * transport threads are not used for parsing the results. Tasks are
+	 * rejected once queue is full, instead of running on transport or
+	 * request threads, and rejected requests get service unavailable.
+	 * @param props
+	 * @return
+	 */
+	@Bean(name = "searchExecutor")
+	public Executor getSearchExecutor(ApplicationProperties props) {
+		log.debug("Creating Async Search Executor");
+		ApplicationProperties.AsyncSearch conf = props.getAsyncSearch();
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(conf.getCorePoolSize());
+		executor.setMaxPoolSize(conf.getMaxPoolSize());
+		executor.setQueueCapacity(conf.getQueueCapacity());
+		executor.setThreadNamePrefix("search-async-");
+		executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+		return executor;
+	}
+
+	/**
+	 * Executor of async searches which have no listener api, i.e. scrolls
+	 * and incremental histograms, each task blocks its thread for whole
+	 * search. It is separate from {@code searchExecutor}, so blocking
+	 * searches do not delay mapping of other responses, and its queue is
+	 * short, so callers get service unavailable instead of waiting.
+	 * @param props
+	 * @return
+	 */
+	@Bean(name = "blockingSearchExecutor")
+	public Executor getBlockingSearchExecutor(ApplicationProperties props) {
+		log.debug("Creating Blocking Search Executor");
+		ApplicationProperties.AsyncSearch conf = props.getAsyncSearch();
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(conf.getBlockingPoolSize());
+		executor.setMaxPoolSize(conf.getBlockingPoolSize());
+		executor.setQueueCapacity(conf.getBlockingQueueCapacity());
+		executor.setThreadNamePrefix("search-blocking-");
+		executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+		return executor;
+	}
+
 	@Override
 	public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
 		return new SimpleAsyncUncaughtExceptionHandler();
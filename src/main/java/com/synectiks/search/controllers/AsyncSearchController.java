@@ -0,0 +1,218 @@
+package com.synectiks.search.controllers;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.codehaus.jettison.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.synectiks.commons.constants.IConsts;
+import com.synectiks.commons.interfaces.IApiController;
+import com.synectiks.commons.utils.IUtils;
+import com.synectiks.search.manager.AsyncSearchManager;
+import com.synectiks.search.queries.Aggregator;
+import com.synectiks.search.queries.FieldsProjection;
+
+/**
+ * Non blocking versions of {@link SearchController} read apis. Request
+ * thread is released while elastic executes the search, the response is
+ * written once the returned future completes.
+ * @author Rajesh
+ */
+@RestController
+@RequestMapping(path = IApiController.API_PATH
+		+ IApiController.URL_SEARCH + "/async", method = RequestMethod.GET)
+@CrossOrigin( origins = "*")
+public class AsyncSearchController {
+
+	private static final Logger logger = LoggerFactory
+			.getLogger(AsyncSearchController.class);
+
+	@Autowired
+	private AsyncSearchManager asyncManager;
+
+	/**
+	 * API {@code /search/async/list}, see
+	 * {@link SearchController#searchEntities}
+	 */
+	@RequestMapping(path = "/list", method = RequestMethod.GET)
+	public CompletableFuture<ResponseEntity<Object>> searchEntities(
+			@RequestParam(value = "cls") String cls,
+			@RequestParam(name = "filters",
+					required = false, defaultValue = "{}") String filters,
+			@RequestParam(name = "pageNo",
+					required = false, defaultValue = "0") int pageNo,
+			@RequestParam(name = "pageSize",
+					required = false, defaultValue = "0") int pageSize,
+			@RequestParam(name = "includes", required = false) String includes,
+			@RequestParam(name = "excludes", required = false) String excludes,
+			@RequestParam(name = "docValueFields", required = false) String docValueFields,
+			@RequestParam(name = "noCache", required = false) boolean noCache) {
+		return respond(() -> asyncManager.search(filters, cls, pageNo, pageSize,
+				FieldsProjection.create(includes, excludes, docValueFields), noCache));
+	}
+
+	/**
+	 * API {@code /search/async/query}, see
+	 * {@link SearchController#searchString}
+	 */
+	@RequestMapping(path = "/query", method = RequestMethod.GET)
+	public CompletableFuture<ResponseEntity<Object>> searchString(
+			@RequestParam(value = "q") String q,
+			@RequestParam(name = "cls", required = false) String cls,
+			@RequestParam(name = "fields", required = false) String fields,
+			@RequestParam(name = "pageNo",
+					required = false, defaultValue = "0") int pageNo,
+			@RequestParam(name = "pageSize",
+					required = false, defaultValue = "0") int pageSize,
+			@RequestParam(name = "raw", required = false) boolean raw,
+			@RequestParam(name = "includes", required = false) String includes,
+			@RequestParam(name = "excludes", required = false) String excludes,
+			@RequestParam(name = "docValueFields", required = false) String docValueFields) {
+		return respond(() -> asyncManager.search(q, cls, fields, pageNo, pageSize,
+				raw, FieldsProjection.create(includes, excludes, docValueFields)));
+	}
+
+	/**
+	 * API {@code /search/async/count}, see
+	 * {@link SearchController#countEntities}
+	 */
+	@RequestMapping(path = "/count", method = RequestMethod.GET)
+	public CompletableFuture<ResponseEntity<Object>> countEntities(
+			@RequestParam(value = "cls") String cls,
+			@RequestParam(name = "filters",
+					required = false, defaultValue = "{}") String filters,
+			@RequestParam(name = "noCache", required = false) boolean noCache,
+			@RequestParam(name = "exists", required = false) boolean exists,
+			@RequestParam(name = "atLeast", required = false) Integer atLeast) {
+		if (exists || (!IUtils.isNull(atLeast) && atLeast > 0)) {
+			return respond(() -> asyncManager.countAtLeast(filters, cls,
+					exists ? 1 : atLeast.intValue(), noCache));
+		}
+		return respond(() -> asyncManager.count(filters, cls, noCache));
+	}
+
+	/**
+	 * API {@code /search/async/aggregateCounts}, see
+	 * {@link SearchController#aggregateCounts}
+	 */
+	@RequestMapping(path = "/aggregateCounts", method = RequestMethod.GET)
+	public CompletableFuture<ResponseEntity<Object>> aggregateCounts(
+			@RequestParam(name = "cls") String cls,
+			@RequestParam(name = "aggregator") JSONObject aggregator,
+			@RequestParam(name = "filters",
+					required = false, defaultValue = "{}") String filters,
+			@RequestParam(name = "noCache", required = false) boolean noCache) {
+		return respond(() -> {
+			Aggregator aggre = IUtils.OBJECT_MAPPER
+					.readerFor(Aggregator.class)
+					.readValue(aggregator.toString());
+			return asyncManager.aggreCounts(filters, cls, aggre, noCache);
+		});
+	}
+
+	/**
+	 * API {@code /search/async/elsQuery}, see
+	 * {@link SearchController#elsQuerySearch}
+	 */
+	@RequestMapping(path = "/elsQuery", method = RequestMethod.GET)
+	public CompletableFuture<ResponseEntity<Object>> elsQuerySearch(
+			@RequestParam(name = IConsts.PRM_QUERY) String elsQuery,
+			@RequestParam(name = IConsts.PRM_CLASS, required = false) String cls,
+			@RequestParam(name = IConsts.PRM_NOT_ONLY_IDS,
+			required = false) boolean notOnlyIds,
+			@RequestParam(name = IConsts.PRM_RES_AS_PSR,
+			required = false) boolean asPSR,
+			@RequestParam(name = IConsts.PRM_PAGE,
+					required = false, defaultValue = "1") int pageNo,
+			@RequestParam(name = IConsts.PRM_PAGE_SIZE,
+					required = false, defaultValue = "10") int pageSize,
+			@RequestParam(name = "includes", required = false) String includes,
+			@RequestParam(name = "excludes", required = false) String excludes,
+			@RequestParam(name = "docValueFields", required = false) String docValueFields) {
+		return respond(() -> asyncManager.elsSearch(elsQuery, cls, pageNo, pageSize,
+				FieldsProjection.create(includes, excludes, docValueFields))
+				.thenApply(res -> {
+					try {
+						return notOnlyIds ? res.toString() :
+							IUtils.createFromSearchResponse(res, asPSR).toString();
+					} catch (Exception ex) {
+						throw new CompletionException(ex);
+					}
+				}));
+	}
+
+	/**
+	 * API {@code /search/async/getDocs}, see
+	 * {@link SearchController#getDocsById}
+	 */
+	@RequestMapping(path = "/getDocs", method = RequestMethod.GET)
+	public CompletableFuture<ResponseEntity<Object>> getDocsById(
+			@RequestParam(value = "cls") String cls,
+			@RequestParam(value = "ids", required = false) List<String> ids,
+			@RequestParam(value = "raw", required = false) boolean raw) {
+		return respond(() -> asyncManager.getDocsById(cls, ids, raw));
+	}
+
+	/**
+	 * Method to create response future from result future, failures
+	 * in creating or completing the result are sent as failed response.
+	 * @param supplier
+	 * @return
+	 */
+	private CompletableFuture<ResponseEntity<Object>> respond(
+			AsyncSupplier<?> supplier) {
+		CompletableFuture<?> future = null;
+		try {
+			future = supplier.get();
+		} catch (Exception ex) {
+			return CompletableFuture.completedFuture(failed(ex));
+		}
+		return future.<ResponseEntity<Object>>handle((res, th) -> {
+			if (!IUtils.isNull(th)) {
+				Throwable cause = th instanceof CompletionException
+						&& !IUtils.isNull(th.getCause()) ? th.getCause() : th;
+				return failed(cause instanceof Exception ?
+						(Exception) cause : new Exception(cause));
+			}
+			return new ResponseEntity<Object>(res, HttpStatus.OK);
+		});
+	}
+
+	private ResponseEntity<Object> failed(Exception ex) {
+		if (ex instanceof RejectedExecutionException) {
+			// search executor is saturated, let client retry later
+			logger.warn("Search rejected: " + ex.getMessage());
+			return new ResponseEntity<>(IUtils.getFailedResponse(ex),
+					HttpStatus.SERVICE_UNAVAILABLE);
+		}
+		if (ex instanceof IllegalArgumentException) {
+			// invalid filters or aggregator
+			logger.warn("Invalid request: " + ex.getMessage());
+			return new ResponseEntity<>(IUtils.getFailedResponse(ex),
+					HttpStatus.BAD_REQUEST);
+		}
+		logger.error(ex.getMessage(), ex);
+		return new ResponseEntity<>(IUtils.getFailedResponse(ex),
+				HttpStatus.PRECONDITION_FAILED);
+	}
+
+	/**
+	 * Supplier of result future which can throw exception.
+	 */
+	@FunctionalInterface
+	private interface AsyncSupplier<T> {
+		CompletableFuture<T> get() throws Exception;
+	}
+}
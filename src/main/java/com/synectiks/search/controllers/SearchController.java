@@ -3,9 +3,10 @@
  */
 package com.synectiks.search.controllers;
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -14,22 +15,33 @@ import org.elasticsearch.action.search.SearchResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.synectiks.commons.constants.IConsts;
 import com.synectiks.commons.entities.search.ESEvent;
 import com.synectiks.commons.interfaces.IApiController;
 import com.synectiks.commons.utils.IUtils;
+import com.synectiks.search.manager.BulkManager;
+import com.synectiks.search.manager.FieldCatalog;
+import com.synectiks.search.manager.QueryTaskRegistry;
 import com.synectiks.search.manager.SearchManager;
 import com.synectiks.search.queries.Aggregator;
+import com.synectiks.search.queries.FieldsProjection;
+import com.synectiks.search.queries.MultiSearchItem;
 import com.synectiks.search.receiver.SearchESEventReceiver;
 import com.synectiks.search.utils.IESUtils;
 
@@ -44,29 +56,75 @@ public class SearchController {
 
 	private static final Logger logger = LoggerFactory
 			.getLogger(SearchController.class);
+	private static final String FORMAT_NDJSON = "ndjson";
+	private static final MediaType MEDIA_NDJSON = MediaType
+			.parseMediaType("application/x-ndjson");
 
 	@Autowired
 	private SearchManager searchManger;
 	@Autowired
 	private SearchESEventReceiver receiver;
+	@Autowired
+	private QueryTaskRegistry taskRegistry;
 
 	/**
 	 * Api to get the elastic documents source json as list,
 	 * by elastic documents ids list.
 	 * @param cls
 	 * @param ids
+	 * @param raw set true to get documents as json objects instead
+	 * of json strings.
 	 * @return
 	 */
 	@RequestMapping(path = "/getDocs", method = RequestMethod.GET)
 	public ResponseEntity<Object> getDocsById(
 			@RequestParam(value = "cls") String cls,
-			@RequestParam(value = "ids", required = false) List<String> ids) {
+			@RequestParam(value = "ids", required = false) List<String> ids,
+			@RequestParam(value = "raw", required = false) boolean raw) {
 
 		logger.info(cls + ", " + ids);
-		List<String> docs = null;
+		List<?> docs = null;
 		try {
 			// Search in specified fields with page numbers
-			docs  = searchManger.getDocsById(cls, ids);
+			if (raw) {
+				docs = searchManger.getRawDocsById(cls, ids);
+			} else {
+				docs = searchManger.getDocsById(cls, ids);
+			}
+		} catch (Exception ex) {
+			logger.error(ex.getMessage(), ex);
+			return new ResponseEntity<>(IUtils.getFailedResponse(ex),
+					HttpStatus.PRECONDITION_FAILED);
+		}
+		return new ResponseEntity<>(docs, HttpStatus.OK);
+	}
+
+	/**
+	 * Api to get the elastic documents by ids using multi get.
+	 * Request body json format:<br/>
+	 * <pre>
+	 * {
+	 * 	<b>"cls"</b>: "fully qualified entity class name",
+	 * 	<b>"ids"</b>: ["id-1", "id-2", ...],
+	 * 	"includes": ["field-1", ...],
+	 * 	"excludes": ["field-2", ...]
+	 * }
+	 * </pre>
+	 * @param obj
+	 * @return list of {id, found, source} objects in requested ids order
+	 */
+	@RequestMapping(path = "/getDocs", method = RequestMethod.POST)
+	public ResponseEntity<Object> multiGetDocs(@RequestBody ObjectNode obj) {
+		List<Map<String, Object>> docs = null;
+		try {
+			String cls = obj.get("cls").asText();
+			List<String> ids = IUtils.OBJECT_MAPPER.convertValue(
+					obj.path("ids"), new TypeReference<List<String>>() {});
+			String[] includes = IUtils.OBJECT_MAPPER.convertValue(
+					obj.get("includes"), String[].class);
+			String[] excludes = IUtils.OBJECT_MAPPER.convertValue(
+					obj.get("excludes"), String[].class);
+			docs = searchManger.multiGet(cls, ids, includes, excludes);
 		} catch (Exception ex) {
 			logger.error(ex.getMessage(), ex);
 			return new ResponseEntity<>(IUtils.getFailedResponse(ex),
@@ -108,16 +166,37 @@ public class SearchController {
 	 * API to return mappings for entity class.
 	 * @param cls
 	 * @param fieldsOnly if true then you will get list of fieldnames
+	 * @param withTypes if true with fieldsOnly then you will get fields
+	 * types and nested paths.
+	 * @param ifNoneMatch etag of fields response client already has
 	 * @return
 	 */
 	@RequestMapping(path = "/getIndexMapping", method = RequestMethod.GET)
 	public ResponseEntity<Object> getMapping(
 			@RequestParam(value = "cls") String cls,
 			@RequestParam(name = "fieldsOnly",
-					required = false) boolean fieldsOnly) {
+					required = false) boolean fieldsOnly,
+			@RequestParam(name = "withTypes",
+					required = false) boolean withTypes,
+			@RequestHeader(name = HttpHeaders.IF_NONE_MATCH,
+					required = false) String ifNoneMatch) {
 		logger.info(cls + ", " + fieldsOnly);
 		Object res = null;
 		try {
+			if (fieldsOnly) {
+				// Serve precomputed fields response of existing index
+				FieldCatalog.Fields fields = searchManger.getFieldCatalog(cls);
+				if (!IUtils.isNull(fields)) {
+					if (!IUtils.isNullOrEmpty(ifNoneMatch)
+							&& ifNoneMatch.contains(fields.getEtag())) {
+						return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+								.eTag(fields.getEtag()).build();
+					}
+					return ResponseEntity.ok().eTag(fields.getEtag())
+							.contentType(MediaType.APPLICATION_JSON_UTF8)
+							.body(fields.getResponse(withTypes));
+				}
+			}
 			// Search in specified fields with page numbers
 			@SuppressWarnings("rawtypes")
 			Map mappings  = searchManger.gettMapping(cls);
@@ -164,6 +243,10 @@ public class SearchController {
 	 * @param elsQuery
 	 * @param pageNo
 	 * @param pageSize
+	 * @param includes comma separated source fields to return
+	 * @param excludes comma separated source fields to skip
+	 * @param docValueFields comma separated keyword or numeric fields
+	 * to load from doc values instead of source
 	 * @return {@code SearchResponse} object
 	 */
 	@RequestMapping(path = "/elsQuery", method = RequestMethod.GET)
@@ -177,13 +260,17 @@ public class SearchController {
 			@RequestParam(name = IConsts.PRM_PAGE,
 					required = false, defaultValue = "1") int pageNo,
 			@RequestParam(name = IConsts.PRM_PAGE_SIZE,
-					required = false, defaultValue = "10") int pageSize) {
+					required = false, defaultValue = "10") int pageSize,
+			@RequestParam(name = "includes", required = false) String includes,
+			@RequestParam(name = "excludes", required = false) String excludes,
+			@RequestParam(name = "docValueFields", required = false) String docValueFields) {
 		Object res = null;
 		try {
 			logger.info("Cls: " + cls + "\nElsQuery: " + elsQuery);
 			// Search in specified fields with page numbers
-			SearchResponse searchResults = searchManger.elsSearch(
-					elsQuery, cls, pageNo, pageSize);
+			SearchResponse searchResults = searchManger.elsSearch(elsQuery, cls,
+					pageNo, pageSize, FieldsProjection.create(
+							includes, excludes, docValueFields));
 			if (notOnlyIds) {
 				res = searchResults;
 			} else {
@@ -207,6 +294,12 @@ public class SearchController {
 	 * @param fields comma separated list of entity class fields
 	 * @param pageNo page number to send in result, 1 - based i.e. 1 for first
 	 * @param pageSize size of page in result
+	 * @param raw set true to get documents as json objects instead
+	 * of json strings, if cls is not specified.
+	 * @param includes comma separated source fields to return
+	 * @param excludes comma separated source fields to skip
+	 * @param docValueFields comma separated keyword or numeric fields
+	 * to load from doc values instead of source
 	 * @return {@code List} of entities in {@code ResponseEntity} body
 	 */
 	@RequestMapping(path = "/query", method = RequestMethod.GET)
@@ -216,12 +309,16 @@ public class SearchController {
 			@RequestParam(name = "pageNo",
 					required = false, defaultValue = "0") int pageNo,
 			@RequestParam(name = "pageSize",
-					required = false, defaultValue = "0") int pageSize) {
+					required = false, defaultValue = "0") int pageSize,
+			@RequestParam(name = "raw", required = false) boolean raw,
+			@RequestParam(name = "includes", required = false) String includes,
+			@RequestParam(name = "excludes", required = false) String excludes,
+			@RequestParam(name = "docValueFields", required = false) String docValueFields) {
 		List<?> searchResults = null;
 		try {
 			// Search in specified fields with page numbers
-			searchResults = searchManger.search(
-					q, cls, fields, pageNo, pageSize);
+			searchResults = searchManger.search(q, cls, fields, pageNo, pageSize,
+					raw, FieldsProjection.create(includes, excludes, docValueFields));
 		} catch (Exception ex) {
 			logger.error(ex.getMessage(), ex);
 			return new ResponseEntity<>(IUtils.getFailedResponse(ex),
@@ -267,7 +364,13 @@ public class SearchController {
 	 * </pre>
 	 * @param pageNo page number to send in result, 1 - based i.e. 1 for first
 	 * @param pageSize size of page in result
-	 * @return {@code List} of entities in {@code ResponseEntity} body
+	 * @param includes comma separated source fields to return
+	 * @param excludes comma separated source fields to skip
+	 * @param docValueFields comma separated keyword or numeric fields
+	 * to load from doc values instead of source
+	 * @param noCache set true to bypass query cache
+	 * @return {@code List} of entities, or partial documents if
+	 * docValueFields are requested, in {@code ResponseEntity} body
 	 */
 	@RequestMapping(path = "/list", method = RequestMethod.GET)
 	public ResponseEntity<Object> searchEntities(
@@ -277,11 +380,17 @@ public class SearchController {
 			@RequestParam(name = "pageNo",
 					required = false, defaultValue = "0") int pageNo,
 			@RequestParam(name = "pageSize",
-					required = false, defaultValue = "0") int pageSize) {
+					required = false, defaultValue = "0") int pageSize,
+			@RequestParam(name = "includes", required = false) String includes,
+			@RequestParam(name = "excludes", required = false) String excludes,
+			@RequestParam(name = "docValueFields", required = false) String docValueFields,
+			@RequestParam(name = "noCache", required = false) boolean noCache) {
 		List<?> searchResults = null;
 		try {
 			// Search in specified fields
-			searchResults = searchManger.search(filters, cls, pageNo, pageSize);
+			searchResults = searchManger.search(filters, cls, pageNo, pageSize,
+					FieldsProjection.create(includes, excludes, docValueFields),
+					noCache);
 		} catch (Exception ex) {
 			logger.error(ex.getMessage(), ex);
 			return new ResponseEntity<>(IUtils.getFailedResponse(ex),
@@ -296,17 +405,28 @@ public class SearchController {
 	 * <br/>
 	 * For params doc {@see #searchEntities(String, String, int, int)}
 	 * <br/>
-	 * @return {@code Long} count of entities in {@code ResponseEntity} body
+	 * @param exists set true to only check if any entity matches filters
+	 * @param atLeast if set, counting stops once atLeast entities found
+	 * @return {@code Long} count of entities in {@code ResponseEntity} body,
+	 * or count and truncated flag if exists or atLeast is set.
 	 */
 	@RequestMapping(path = "/count", method = RequestMethod.GET)
 	public ResponseEntity<Object> countEntities(
 			@RequestParam(name = "cls") String cls,
 			@RequestParam(name = "filters",
-					required = false, defaultValue = "{}") String filters) {
-		long searchResults = 0l;
+					required = false, defaultValue = "{}") String filters,
+			@RequestParam(name = "noCache", required = false) boolean noCache,
+			@RequestParam(name = "exists", required = false) boolean exists,
+			@RequestParam(name = "atLeast", required = false) Integer atLeast) {
+		Object searchResults = 0l;
 		try {
-			// Search in specified fields
-			searchResults = searchManger.count(filters, cls);
+			if (exists || (!IUtils.isNull(atLeast) && atLeast > 0)) {
+				searchResults = searchManger.countAtLeast(filters, cls,
+						exists ? 1 : atLeast.intValue(), noCache);
+			} else {
+				// Search in specified fields
+				searchResults = searchManger.count(filters, cls, noCache);
+			}
 		} catch (Exception ex) {
 			logger.error(ex.getMessage(), ex);
 			return new ResponseEntity<>(IUtils.getFailedResponse(ex),
@@ -331,13 +451,24 @@ public class SearchController {
 	 * 	"ranges": [{"from": X, "to": Y}], -- only used for numbers
 	 * 	"values": ["ABC", "DEF"],
 	 * 	"locale": "local-value if any",
-	 * 	"format": "value format if needs formated key"
+	 * 	"format": "value format if needs formated key",
+	 * 	"name": "aggregation key, default is aggreType_fieldName[_interval]",
+	 * 	"aggregations": [{aggregator}, ...] -- sub aggregations of each bucket
+	 * 	"pageSize": 1000 -- to page terms buckets,
+	 * 	"afterKey": {afterKey of previous page result}
 	 * }
 	 * </pre>
+	 * Aggregator without aggreType and with aggregations is a group of
+	 * sibling aggregations, all are computed in one request.
+	 * Terms with pageSize or afterKey use a composite aggregation, page
+	 * result has afterKey to request next page until buckets are empty.
 	 * <br/>
 	 * For params doc {@see #searchEntities(String, String, int, int)}
 	 * <br/>
-	 * @return {@code Map} of aggregation key, doc_count values
+	 * @param noCache set true to bypass query cache
+	 * @return {@code Map} of aggregation key, doc_count values, or of
+	 * aggregation key, {@code AggregationResult} buckets tree if aggregator
+	 * has sub or sibling aggregations
 	 * in {@code ResponseEntity} body
 	 */
 	@RequestMapping(path = "/aggregateCounts", method = RequestMethod.GET)
@@ -345,14 +476,55 @@ public class SearchController {
 			@RequestParam(name = "cls") String cls,
 			@RequestParam(name = "aggregator") JSONObject aggregator,
 			@RequestParam(name = "filters",
-					required = false, defaultValue = "{}") String filters) {
+					required = false, defaultValue = "{}") String filters,
+			@RequestParam(name = "noCache", required = false) boolean noCache) {
 		Map<String, Object> res = null;
 		try {
 			Aggregator aggre = IUtils.OBJECT_MAPPER
 					.readerFor(Aggregator.class)
 					.readValue(aggregator.toString());
 			// Fetch aggregated results
-			res = searchManger.aggreCounts(filters, cls, aggre);
+			res = searchManger.aggreCounts(filters, cls, aggre, noCache);
+		} catch (IllegalArgumentException ex) {
+			logger.warn("Invalid aggregator: " + ex.getMessage());
+			return new ResponseEntity<>(IUtils.getFailedResponse(ex),
+					HttpStatus.BAD_REQUEST);
+		} catch (Exception ex) {
+			logger.error(ex.getMessage(), ex);
+			return new ResponseEntity<>(IUtils.getFailedResponse(ex),
+					HttpStatus.PRECONDITION_FAILED);
+		}
+		return new ResponseEntity<>(res, HttpStatus.OK);
+	}
+
+	/**
+	 * API {@code /api/v1/search/msearch} to execute many filters queries
+	 * in one call, queries are sent to elastic in one multi search request.
+	 * Request body json format:<br/>
+	 * <pre>
+	 * [{
+	 * 	<b>"cls"</b>: "fully qualified entity class name",
+	 * 	"filters": {filters json object or string},
+	 * 	"pageNo": 1,
+	 * 	"pageSize": 10,
+	 * 	"count": true -- to get count of entities,
+	 * 	"aggregator": {aggregator json, see {@link #aggregateCounts}},
+	 * 	"includes": "field-1,...", "excludes": "...",
+	 * 	"docValueFields": "..." -- to project list items
+	 * }, ...]
+	 * </pre>
+	 * Items are always searched in elastic, results are not served
+	 * from query cache and identical requests are not coalesced.
+	 * @param items
+	 * @return list of {@code {"result": ...}} or {@code {"error": ...}}
+	 * objects in items order
+	 */
+	@RequestMapping(path = "/msearch", method = RequestMethod.POST)
+	public ResponseEntity<Object> multiSearch(
+			@RequestBody List<MultiSearchItem> items) {
+		List<Map<String, Object>> res = null;
+		try {
+			res = searchManger.multiSearch(items);
 		} catch (Exception ex) {
 			logger.error(ex.getMessage(), ex);
 			return new ResponseEntity<>(IUtils.getFailedResponse(ex),
@@ -379,14 +551,9 @@ public class SearchController {
 					cls + ", type: " + eventType + ", entity: " + entity + "]");
 			if (!IUtils.isNullOrEmpty(entity)) {
 				if (entity.trim().startsWith("[")) {
-					List<String> lst = new ArrayList<>();
 					String[] arr = IUtils.getArrayFromJsonString(entity);
-					for (String obj : arr) {
-						ESEvent event = IESUtils.createEvent(cls, eventType, obj);
-						logger.info("fire: " + event);
-						lst.add(receiver.handleEvent(event));
-					}
-					res = lst;
+					logger.info("fire bulk: " + arr.length + " entities");
+					res = receiver.handleEvents(cls, eventType, arr);
 				} else {
 					ESEvent event = IESUtils.createEvent(cls, eventType, entity);
 					logger.info("fire: " + event);
@@ -404,18 +571,50 @@ public class SearchController {
 		return new ResponseEntity<>(res, HttpStatus.OK);
 	}
 
+	/**
+	 * API to update all documents matched by key and value.
+	 * Request body json format:<br/>
+	 * <pre>
+	 * {
+	 * 	<b>"type"</b>: "index type",
+	 * 	<b>"index"</b>: "index name",
+	 * 	<b>"searchKey"</b>: "field to match",
+	 * 	<b>"searchValue"</b>: "value to match",
+	 * 	<b>"updateKey"</b>: "field to update",
+	 * 	<b>"updateValue"</b>: "new value",
+	 * 	"ignoreCase": true,
+	 * 	"slices": 1,
+	 * 	"refresh": true,
+	 * 	"async": false -- set true to get a taskId, see {@code /taskStatus}
+	 * }
+	 * </pre>
+	 * @param obj
+	 * @return summary of updated documents or task id
+	 */
 	@RequestMapping(path = "/updateWithQuery", method = RequestMethod.POST)
 	public ResponseEntity<Object> updateWithQuery(@RequestBody ObjectNode obj) {
-		List<?> searchResults = null;
+		Object searchResults = null;
 		try {
-			String type = obj.get("type").asText();
+			String type = obj.path("type").asText();
 			String index = obj.get("index").asText();
 			String searchKey = obj.get("searchKey").asText();
 			String searchValue = obj.get("searchValue").asText();
 			String updateKey = obj.get("updateKey").asText();
 			String updateValue = obj.get("updateValue").asText();
-			searchResults = searchManger.updateWithQuery(type, index, searchKey,
-					searchValue, updateKey, updateValue);
+			boolean ignoreCase = obj.path("ignoreCase").asBoolean(true);
+			int slices = obj.path("slices").asInt(0);
+			boolean refresh = obj.path("refresh").asBoolean(true);
+			if (obj.path("async").asBoolean(false)) {
+				String taskId = taskRegistry.submit("updateWithQuery",
+						() -> searchManger.updateWithQuery(type, index, searchKey,
+								searchValue, updateKey, updateValue, ignoreCase,
+								slices, refresh));
+				searchResults = Collections.singletonMap("taskId", taskId);
+			} else {
+				searchResults = searchManger.updateWithQuery(type, index, searchKey,
+						searchValue, updateKey, updateValue, ignoreCase, slices,
+						refresh);
+			}
 		} catch (Exception ex) {
 			logger.error("Exeption in updateWithQuery: ", ex);
 			return new ResponseEntity<>(IUtils.getFailedResponse(ex),
@@ -424,16 +623,57 @@ public class SearchController {
 		return new ResponseEntity<>(searchResults, HttpStatus.OK);
 	}
 
+	/**
+	 * API to get the status of an async by query task.
+	 * @param taskId
+	 * @return task status with result if task completed.
+	 */
+	@RequestMapping(path = "/taskStatus", method = RequestMethod.GET)
+	public ResponseEntity<Object> taskStatus(
+			@RequestParam(name = "taskId") String taskId) {
+		Map<String, Object> res = taskRegistry.getStatus(taskId);
+		if (IUtils.isNull(res)) {
+			return new ResponseEntity<>(IUtils.getFailedResponse(
+					new Exception("Task not found: " + taskId)), HttpStatus.NOT_FOUND);
+		}
+		return new ResponseEntity<>(res, HttpStatus.OK);
+	}
+
+	/**
+	 * API to delete all documents matched by filters.
+	 * Request body json format:<br/>
+	 * <pre>
+	 * {
+	 * 	"type": "index type",
+	 * 	<b>"index"</b>: "index name",
+	 * 	"filters": {"and": [...], "or": [...], "not": [...], "filters": [...]},
+	 * 	"searchKey": "field to match",
+	 * 	"searchValue": "value to match",
+	 * 	"ignoreCase": false,
+	 * 	"slices": 1,
+	 * 	"refresh": true
+	 * }
+	 * </pre>
+	 * For filters format {@see #searchEntities(String, String, int, int)}
+	 * @param obj
+	 * @return summary with deleted, failed and tookMs counts
+	 */
 	@RequestMapping(path = "/deleteWithQuery", method = RequestMethod.POST)
 	public ResponseEntity<Object> deleteWithQuery(@RequestBody ObjectNode obj) {
-		List<?> searchResults = null;
+		Map<String, Object> searchResults = null;
 		try {
-			String type = obj.get("type").asText();
+			String type = obj.path("type").asText();
 			String index = obj.get("index").asText();
-			String searchKey = obj.get("searchKey").asText();
-			String searchValue = obj.get("searchValue").asText();
-			searchResults = searchManger.deleteWithQuery(type, index, searchKey,
-					searchValue);
+			JsonNode fltrs = obj.path("filters");
+			String filters = (fltrs.isTextual() ? fltrs.asText()
+					: (fltrs.isObject() ? fltrs.toString() : null));
+			String searchKey = obj.path("searchKey").asText(null);
+			String searchValue = obj.path("searchValue").asText(null);
+			boolean ignoreCase = obj.path("ignoreCase").asBoolean(false);
+			int slices = obj.path("slices").asInt(0);
+			boolean refresh = obj.path("refresh").asBoolean(true);
+			searchResults = searchManger.deleteWithQuery(type, index, filters,
+					searchKey, searchValue, ignoreCase, slices, refresh);
 		} catch (Exception ex) {
 			logger.error("Exeption in deleteWithQuery: ", ex);
 			return new ResponseEntity<>(IUtils.getFailedResponse(ex),
@@ -442,13 +682,28 @@ public class SearchController {
 		return new ResponseEntity<>(searchResults, HttpStatus.OK);
 	}
 
+	/**
+	 * API to count all documents in index.
+	 * @param type
+	 * @param index
+	 * @param noCache set true to bypass query cache
+	 * @param atLeast if set, counting stops once atLeast documents found
+	 * and result has count and truncated flag.
+	 * @return
+	 */
 	@RequestMapping(path = "/totalRecords", method = RequestMethod.GET)
 	public ResponseEntity<Object> totalRecords(
 			@RequestParam(name = "type", required = false, defaultValue = "") String type,
-			@RequestParam(name = "index") String index) {
-		Long total = 0L;
+			@RequestParam(name = "index") String index,
+			@RequestParam(name = "noCache", required = false) boolean noCache,
+			@RequestParam(name = "atLeast", required = false) Integer atLeast) {
+		Object total = 0L;
 		try {
-			total = searchManger.getTotalRecords(type, index);
+			if (!IUtils.isNull(atLeast) && atLeast > 0) {
+				total = searchManger.getTotalRecords(type, index, atLeast.intValue());
+			} else {
+				total = searchManger.getTotalRecords(type, index, noCache);
+			}
 		} catch (Exception ex) {
 			logger.error("Exeption in totalRecords: ", ex);
 			return new ResponseEntity<>(IUtils.getFailedResponse(ex),
@@ -457,24 +712,44 @@ public class SearchController {
 		return new ResponseEntity<>(total, HttpStatus.OK);
 	}
 
+	/**
+	 * API to search documents by key value lookup in elastic.
+	 * @param type
+	 * @param index
+	 * @param searchKey field name to match
+	 * @param searchValue value to match
+	 * @param limit if set, returns list of max limit matched documents
+	 * else only first matched document.
+	 * @param ignoreCase set false to match exact case value.
+	 * @return
+	 */
 	@RequestMapping(path = "/searchWithQuery", method = RequestMethod.GET)
 	public ResponseEntity<Object> searchWithQuery(
 			@RequestParam(name = "type", required = false, defaultValue = "") String type,
 			@RequestParam(name = "index") String index,
 			@RequestParam(name = "searchKey") String searchKey,
-			@RequestParam(name = "searchValue") String searchValue) {
+			@RequestParam(name = "searchValue") String searchValue,
+			@RequestParam(name = "limit", required = false) Integer limit,
+			@RequestParam(name = "ignoreCase", required = false,
+					defaultValue = "true") boolean ignoreCase) {
 		logger.info("Searching specific record in elastic. " + searchKey + " : "
 				+ searchValue);
-		JSONObject searchResults = null;
+		Object searchResults = null;
 		try {
-			searchResults = searchManger.searchWithQuery(type, index, searchKey,
-					searchValue);
+			if (IUtils.isNull(limit)) {
+				List<String> docs = searchManger.searchWithQuery(type, index,
+						searchKey, searchValue, 1, ignoreCase);
+				searchResults = (docs.isEmpty() ? null : docs.get(0));
+			} else {
+				searchResults = searchManger.searchWithQuery(type, index,
+						searchKey, searchValue, limit, ignoreCase);
+			}
 		} catch (Exception ex) {
 			logger.error("Exeption in searchWithQuery: ", ex);
 			return new ResponseEntity<>(IUtils.getFailedResponse(ex),
 					HttpStatus.PRECONDITION_FAILED);
 		}
-		return new ResponseEntity<>(searchResults.toString(), HttpStatus.OK);
+		return new ResponseEntity<>(searchResults, HttpStatus.OK);
 	}
 
 	@RequestMapping(path = "/searchWithIndexAndType", method = RequestMethod.GET)
@@ -498,30 +773,71 @@ public class SearchController {
 		return new ResponseEntity<>(searchResults, HttpStatus.OK);
 	}
 
+	/**
+	 * API to stream all documents of index and type or entity class.
+	 * Documents are written while elastic scroll advances, so large
+	 * indices are not limited by max result window or service memory.
+	 * @param cls
+	 * @param type
+	 * @param index
+	 * @param format <b>ndjson</b> for new line delimited documents
+	 * or <b>json</b> for a json array
+	 * @return
+	 */
+	@RequestMapping(path = "/streamWithIndexAndType", method = RequestMethod.GET)
+	public ResponseEntity<StreamingResponseBody> streamWithIndexAndType(
+			@RequestParam(name = "cls", required = false) String cls,
+			@RequestParam(name = "type", required = false, defaultValue = "") String type,
+			@RequestParam(name = "index", required = false) String index,
+			@RequestParam(name = "format", required = false,
+					defaultValue = FORMAT_NDJSON) String format) {
+		logger.info("Streaming all records from elastic: " + cls + ", " + index
+				+ ", " + type);
+		boolean ndjson = FORMAT_NDJSON.equalsIgnoreCase(format);
+		StreamingResponseBody body = out -> {
+			if (!IUtils.isNull(cls)) {
+				searchManger.streamWithClass(cls, out, ndjson);
+			} else {
+				searchManger.streamWithIndexAndType(type, index, out, ndjson);
+			}
+		};
+		return ResponseEntity.ok()
+				.contentType(ndjson ? MEDIA_NDJSON : MediaType.APPLICATION_JSON)
+				.body(body);
+	}
+
 	/**
 	 * Method to save the documents in the specified index, create if not exists.
+	 * Documents are written using bulk requests while request body is read.
 	 * @param req pass the index name in request param 'index_name'
-	 * @param lst
+	 * @param detailed set true to get id or error of each document,
+	 * else list of ids with null for failed documents.
 	 * @return
 	 */
 	@RequestMapping(path = "/saveDocs", method = RequestMethod.POST)
 	public ResponseEntity<Object> saveDocsInIndex(HttpServletRequest req,
-			@RequestBody String lst) {
-		List<String> res = null;
+			@RequestParam(name = "detailed", required = false) boolean detailed) {
+		Object res = null;
 		String indx = req.getHeader(IConsts.PRM_INDX_NAME);
 		try {
 			if (IUtils.isNullOrEmpty(indx)) {
 				throw new Exception("Request parameter '"
 						+ IConsts.PRM_INDX_NAME + "' not set.");
 			}
-			if (!IUtils.isNullOrEmpty(lst)) {
-				List<String> docs = IUtils.getListFromJsonString(lst);
-				res = searchManger.saveDocs(indx, docs);
-			} else {
+			List<Map<String, Object>> lst = searchManger.saveDocs(
+					indx, req.getInputStream());
+			if (lst.isEmpty()) {
 				throw new Exception("Documents list is null or empty.");
 			}
+			if (detailed) {
+				res = lst;
+			} else {
+				res = lst.stream().map(item -> item.containsKey(BulkManager.ERROR)
+						? null : item.get(BulkManager.ID))
+						.collect(Collectors.toList());
+			}
 		} catch (Exception ex) {
-			logger.error("Exeption in searchWithIndexAndType: ", ex);
+			logger.error("Exeption in saveDocs: ", ex);
 			return new ResponseEntity<>(IUtils.getFailedResponse(ex),
 					HttpStatus.PRECONDITION_FAILED);
 		}
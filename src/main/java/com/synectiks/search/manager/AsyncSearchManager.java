@@ -0,0 +1,324 @@
+/**
+ *
+ */
+package com.synectiks.search.manager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+import org.codehaus.jettison.json.JSONObject;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.get.MultiGetItemResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.get.MultiGetResponse;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.search.SearchHit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.elasticsearch.core.ElasticsearchTemplate;
+import org.springframework.data.elasticsearch.core.query.SearchQuery;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.synectiks.commons.utils.IUtils;
+import com.synectiks.search.manager.SearchManager.AggregationResultExtractor;
+import com.synectiks.search.manager.SearchManager.RawSearchResultExtractor;
+import com.synectiks.search.manager.SearchManager.SearchResultExtractor;
+import com.synectiks.search.queries.Aggregator;
+import com.synectiks.search.queries.FieldsProjection;
+import com.synectiks.search.utils.EntityMetadata;
+import com.synectiks.search.utils.IESUtils;
+import com.synectiks.search.utils.RawJson;
+
+/**
+ * Manager to execute read requests without blocking the caller. Requests
+ * are sent with transport client listeners and responses are mapped on
+ * {@code searchExecutor}. Deep paging requests which scroll and
+ * incremental date histograms have no listener api, they are run by
+ * {@link SearchManager} on {@code blockingSearchExecutor}, so they hold
+ * one of its threads for whole search and are rejected once it is full.
+ * @author Rajesh
+ */
+@Component
+public class AsyncSearchManager {
+
+	private static final Logger logger = LoggerFactory.getLogger(AsyncSearchManager.class);
+
+	@Autowired
+	private ElasticsearchTemplate esTemplate;
+	@Autowired
+	private SearchManager searchManager;
+	@Autowired
+	private QueryCache queryCache;
+	@Autowired
+	private CompiledQueries compiledQueries;
+	@Autowired
+	@Qualifier("searchExecutor")
+	private Executor executor;
+	@Autowired
+	@Qualifier("blockingSearchExecutor")
+	private Executor blockingExecutor;
+
+	/**
+	 * Method to get the list of entities match the specified query filters
+	 * @param json filters
+	 * @param cls Entity class
+	 * @param page
+	 * @param size
+	 * @param proj fields to fetch, null for whole entities
+	 * @param noCache set true to bypass query cache
+	 * @return future of {@link SearchManager#search(String, String, int, int,
+	 * FieldsProjection, boolean)} result
+	 */
+	public CompletableFuture<List<?>> search(String json, String cls, int page,
+			int size, FieldsProjection proj, boolean noCache) {
+		if (IESUtils.isScrollQuery(page, size)) {
+			return CompletableFuture.supplyAsync(
+					() -> searchManager.search(json, cls, page, size, proj, noCache),
+					blockingExecutor);
+		}
+		Class<?> clazz = EntityMetadata.classOf(cls);
+		Supplier<CompletableFuture<List<?>>> loader = () -> {
+			SearchQuery sQry = compiledQueries.filters(cls, json, page, size, null);
+			return executeQuery(sQry, clazz, proj);
+		};
+		return cached(IESUtils.getIndexName(clazz), QueryCache.key("list", cls, json,
+				page, size, IUtils.isNull(proj) ? null : proj.toString()), loader, noCache);
+	}
+
+	/**
+	 * Method to search for <b>q</b> string in the <b>cls</b> class's
+	 * <b>fields</b>
+	 * @param q search string
+	 * @param cls fully qualified name of entity class
+	 * @param fields comma separated list of field name of entity class
+	 * @param page
+	 * @param size
+	 * @param raw set true to get documents source as raw json values
+	 * if class is not specified.
+	 * @param proj fields to fetch, null for whole documents
+	 * @return future of list of entity objects which match query criteria
+	 */
+	public CompletableFuture<List<?>> search(String q, String cls, String fields,
+			int page, int size, boolean raw, FieldsProjection proj) {
+		Class<?> clazz = EntityMetadata.classOf(cls);
+		boolean docValues = !IUtils.isNull(proj) && proj.hasDocValueFields();
+		if ((!IUtils.isNull(clazz) || docValues) && IESUtils.isScrollQuery(page, size)) {
+			return CompletableFuture.supplyAsync(
+					() -> searchManager.search(q, cls, fields, page, size, raw, proj),
+					blockingExecutor);
+		}
+		SearchQuery sQry = compiledQueries.string(q, fields, cls, page, size);
+		if (!IUtils.isNull(clazz) || docValues) {
+			return executeQuery(sQry, clazz, proj);
+		}
+		SearchRequestBuilder builder = prepareSearch(sQry, proj);
+		return execute(builder).thenApplyAsync(res -> raw ?
+				new RawSearchResultExtractor().extract(res) :
+				new SearchResultExtractor().extract(res), executor);
+	}
+
+	/**
+	 * Method to get the count of entities match the specified query filters
+	 * @param json string filters
+	 * @param cls Entity class
+	 * @param noCache set true to bypass query cache
+	 * @return future of count of Entity class instances.
+	 */
+	public CompletableFuture<Long> count(String json, String cls, boolean noCache) {
+		Supplier<CompletableFuture<Long>> loader = () -> {
+			SearchQuery sQry = compiledQueries.filters(cls, json, 0, 0, null);
+			SearchRequestBuilder builder = prepareSearch(sQry, null).setSize(0);
+			return execute(builder).thenApply(res -> res.getHits().getTotalHits());
+		};
+		return cached(IESUtils.getIndexName(EntityMetadata.classOf(cls)),
+				QueryCache.key("count", cls, json), loader, noCache);
+	}
+
+	/**
+	 * Method to count entities match the specified query filters until
+	 * {@code atLeast} entities are found, instead of exact total.
+	 * @param json string filters
+	 * @param cls Entity class
+	 * @param atLeast number of entities to count, 1 to check existence
+	 * @param noCache set true to bypass query cache
+	 * @return future of map with count and truncated flag
+	 */
+	public CompletableFuture<Map<String, Object>> countAtLeast(String json, String cls,
+			int atLeast, boolean noCache) {
+		Supplier<CompletableFuture<Map<String, Object>>> loader = () -> {
+			SearchQuery sQry = compiledQueries.filters(cls, json, 0, 0, null);
+			return execute(IESUtils.prepareCountAtLeast(esTemplate.getClient(),
+					sQry, atLeast)).thenApply(
+							res -> IESUtils.getCountAtLeast(res, atLeast));
+		};
+		return cached(IESUtils.getIndexName(EntityMetadata.classOf(cls)),
+				QueryCache.key("count", cls, json, atLeast), loader, noCache);
+	}
+
+	/**
+	 * Method to get the aggregation counts of entities match the
+	 * specified query filters
+	 * @param json filters
+	 * @param cls Entity class
+	 * @param aggre Aggregator object
+	 * @param noCache set true to bypass query cache
+	 * @return future of aggregation key, values map
+	 */
+	public CompletableFuture<Map<String, Object>> aggreCounts(String json, String cls,
+			Aggregator aggre, boolean noCache) {
+		Supplier<CompletableFuture<Map<String, Object>>> loader = () -> {
+			SearchQuery sQry = compiledQueries.filters(cls, json, 0, 0, aggre);
+			return execute(prepareSearch(sQry, null)).thenApplyAsync(
+					res -> new AggregationResultExtractor(aggre).extract(res), executor);
+		};
+		String aggreJson = null;
+		try {
+			aggreJson = IUtils.OBJECT_MAPPER.writeValueAsString(aggre);
+		} catch (JsonProcessingException e) {
+			logger.warn("Aggregator is not cacheable: " + e.getMessage());
+		}
+		if (IUtils.isNull(aggreJson)) {
+			return loader.get();
+		}
+		if (!noCache && aggre.isDateHistogram()) {
+			// incremental histograms are merged by search manager
+			return CompletableFuture.supplyAsync(
+					() -> searchManager.aggreCounts(json, cls, aggre, false),
+					blockingExecutor);
+		}
+		return cached(IESUtils.getIndexName(EntityMetadata.classOf(cls)),
+				QueryCache.key("aggre", cls, json, aggreJson), loader, noCache);
+	}
+
+	/**
+	 * Method to execute elastic search query string in json format.
+	 * @param elsQuery
+	 * @param cls
+	 * @param pageNo
+	 * @param pageSize
+	 * @param proj fields to fetch, null for whole source
+	 * @return future of elastic search response
+	 */
+	public CompletableFuture<SearchResponse> elsSearch(String elsQuery, String cls,
+			int pageNo, int pageSize, FieldsProjection proj) {
+		SearchQuery sQry = searchManager.buildElsQuery(elsQuery, cls, pageNo, pageSize);
+		return execute(prepareSearch(sQry, proj));
+	}
+
+	/**
+	 * Method to return documents source by elastic document ids.
+	 * @param cls
+	 * @param ids
+	 * @param raw set true to get raw json sources instead of json strings
+	 * @return future of found documents source in requested ids order
+	 */
+	public CompletableFuture<List<?>> getDocsById(String cls, List<String> ids,
+			boolean raw) {
+		List<CompletableFuture<List<MultiGetItemResponse>>> futures = new ArrayList<>();
+		for (MultiGetRequest req : searchManager.createMultiGetRequests(
+				cls, ids, null, null)) {
+			CompletableFuture<MultiGetResponse> future = new CompletableFuture<>();
+			esTemplate.getClient().multiGet(req, listener(future));
+			// a failed chunk fails only its own items
+			futures.add(future.handle((res, th) -> {
+				if (IUtils.isNull(th)) {
+					return Arrays.asList(res.getResponses());
+				}
+				logger.error("Multi get chunk failed: " + th.getMessage());
+				return SearchManager.getFailedItems(req, th instanceof Exception ?
+						(Exception) th : new Exception(th));
+			}));
+		}
+		return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+				.thenApplyAsync(v -> {
+					List<Object> res = new ArrayList<>();
+					for (CompletableFuture<List<MultiGetItemResponse>> future : futures) {
+						for (MultiGetItemResponse item : future.join()) {
+							if (!item.isFailed() && item.getResponse().isExists()
+									&& !item.getResponse().isSourceEmpty()) {
+								res.add(raw ?
+										new RawJson(item.getResponse().getSourceAsBytesRef()) :
+										new JSONObject(item.getResponse().getSourceAsMap())
+												.toString());
+							}
+						}
+					}
+					return res;
+				}, executor);
+	}
+
+	/**
+	 * Method to execute query and map hits into entities, partial documents
+	 * if doc value fields are requested, or source json strings.
+	 * @param sQry
+	 * @param clazz
+	 * @param proj
+	 * @return
+	 */
+	private CompletableFuture<List<?>> executeQuery(SearchQuery sQry, Class<?> clazz,
+			FieldsProjection proj) {
+		return execute(prepareSearch(sQry, proj)).thenApplyAsync(res -> {
+			if (!IUtils.isNull(proj) && proj.hasDocValueFields()) {
+				List<Map<String, Object>> lst = new ArrayList<>();
+				for (SearchHit hit : res.getHits()) {
+					lst.add(proj.toDocument(hit));
+				}
+				return lst;
+			} else if (!IUtils.isNull(clazz)) {
+				return esTemplate.getResultsMapper()
+						.mapResults(res, clazz, sQry.getPageable()).getContent();
+			}
+			return new SearchResultExtractor().extract(res);
+		}, executor);
+	}
+
+	/**
+	 * Method to load result through query cache, identical concurrent
+	 * loads share one elastic call.
+	 * @param index
+	 * @param key normalized query key
+	 * @param loader
+	 * @param noCache set true to bypass query cache and coalescing,
+	 * so result is always loaded by a new elastic call
+	 * @return
+	 */
+	private <T> CompletableFuture<T> cached(String index, String key,
+			Supplier<CompletableFuture<T>> loader, boolean noCache) {
+		if (noCache) {
+			return loader.get();
+		}
+		return queryCache.getAsync(index, key, loader);
+	}
+
+	private SearchRequestBuilder prepareSearch(SearchQuery sQry, FieldsProjection proj) {
+		SearchRequestBuilder builder = IESUtils.prepareSearch(esTemplate.getClient(), sQry);
+		if (!IUtils.isNull(proj)) {
+			proj.applyTo(builder);
+		}
+		return builder;
+	}
+
+	private CompletableFuture<SearchResponse> execute(SearchRequestBuilder builder) {
+		CompletableFuture<SearchResponse> future = new CompletableFuture<>();
+		builder.execute(listener(future));
+		return future;
+	}
+
+	/**
+	 * Method to create listener which completes the future.
+	 * @param future
+	 * @return
+	 */
+	private static <T> ActionListener<T> listener(CompletableFuture<T> future) {
+		return ActionListener.wrap(future::complete, future::completeExceptionally);
+	}
+}
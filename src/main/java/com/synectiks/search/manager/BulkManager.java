@@ -0,0 +1,200 @@
+/**
+ *
+ */
+package com.synectiks.search.manager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionRequestValidationException;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BackoffPolicy;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.elasticsearch.core.ElasticsearchTemplate;
+import org.springframework.stereotype.Component;
+
+import com.synectiks.commons.utils.IUtils;
+import com.synectiks.search.config.ApplicationProperties;
+
+/**
+ * Manager to write documents into elastic using bulk requests.
+ * @author Rajesh
+ */
+@Component
+public class BulkManager {
+
+	private static final Logger logger = LoggerFactory.getLogger(BulkManager.class);
+
+	public static final String ID = "id";
+	public static final String RESULT = "result";
+	public static final String ERROR = "error";
+
+	@Autowired
+	private ElasticsearchTemplate esTemplate;
+	@Autowired
+	private ApplicationProperties props;
+	@Autowired
+	private IndexCatalog indexCatalog;
+
+	/**
+	 * Method to open a new bulk session, add requests into it
+	 * and finish to get the results.
+	 * @return
+	 */
+	public BulkSession open() {
+		return new BulkSession(esTemplate, props.getBulk(), indexCatalog);
+	}
+
+	/**
+	 * Method to validate a write request before it is added into a bulk,
+	 * as an invalid request fails all requests of its bulk.
+	 * @param request
+	 * @return validation error message or null if request is valid
+	 */
+	public static String validate(DocWriteRequest<?> request) {
+		if (IUtils.isNull(request)) {
+			return "Request is null.";
+		}
+		ActionRequestValidationException ex = request instanceof ActionRequest ?
+				((ActionRequest) request).validate() : null;
+		return IUtils.isNull(ex) ? null : ex.getMessage();
+	}
+
+	/**
+	 * Bulk session to send added requests in batches sized by count and
+	 * bytes. Adding a request waits while configured number of bulk
+	 * requests are in flight, so callers can not overrun elastic.
+	 */
+	public static class BulkSession implements BulkProcessor.Listener {
+
+		private final Map<DocWriteRequest<?>, Integer> positions =
+				Collections.synchronizedMap(new IdentityHashMap<>());
+		private final Map<Integer, Map<String, Object>> results =
+				new ConcurrentHashMap<>();
+		private final BulkProcessor processor;
+		private final IndexCatalog indexCatalog;
+		private final long closeTimeout;
+		private int count = 0;
+
+		private BulkSession(ElasticsearchTemplate esTemplate,
+				ApplicationProperties.Bulk conf, IndexCatalog indexCatalog) {
+			this.indexCatalog = indexCatalog;
+			this.closeTimeout = conf.getCloseTimeout();
+			this.processor = BulkProcessor.builder(esTemplate.getClient(), this)
+					.setBulkActions(conf.getBatchSize())
+					.setBulkSize(new ByteSizeValue(conf.getBatchBytes()))
+					.setFlushInterval(TimeValue.timeValueMillis(conf.getFlushInterval()))
+					.setConcurrentRequests(conf.getConcurrentRequests())
+					.setBackoffPolicy(BackoffPolicy.exponentialBackoff())
+					.build();
+		}
+
+		/**
+		 * Method to add a request into session. Invalid request is added
+		 * as failed result, as it would fail whole bulk request.
+		 * @param request
+		 */
+		public void add(DocWriteRequest<?> request) {
+			String error = validate(request);
+			if (!IUtils.isNull(error)) {
+				addError(error);
+				return;
+			}
+			positions.put(request, count++);
+			processor.add(request);
+		}
+
+		/**
+		 * Method to add a failed result for a request which
+		 * could not be created, to keep results in request order.
+		 * @param error
+		 */
+		public void addError(String error) {
+			Map<String, Object> res = new LinkedHashMap<>();
+			res.put(ID, null);
+			res.put(ERROR, error);
+			results.put(count++, res);
+		}
+
+		/**
+		 * Method to flush pending requests and wait for all bulk responses.
+		 * @return results of each request in added order
+		 * @throws InterruptedException
+		 */
+		public List<Map<String, Object>> finish() throws InterruptedException {
+			if (!processor.awaitClose(closeTimeout, TimeUnit.MILLISECONDS)) {
+				logger.warn("Bulk requests are not completed in " + closeTimeout + "ms");
+			}
+			List<Map<String, Object>> lst = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				Map<String, Object> res = results.get(i);
+				if (res == null) {
+					res = new LinkedHashMap<>();
+					res.put(ID, null);
+					res.put(ERROR, "Bulk request not completed");
+				}
+				lst.add(res);
+			}
+			return lst;
+		}
+
+		@Override
+		public void beforeBulk(long executionId, BulkRequest request) {
+			logger.debug("Bulk " + executionId + ": " + request.numberOfActions()
+					+ " actions, " + request.estimatedSizeInBytes() + " bytes");
+		}
+
+		@Override
+		public void afterBulk(long executionId, BulkRequest request,
+				BulkResponse response) {
+			BulkItemResponse[] items = response.getItems();
+			for (int i = 0; i < items.length; i++) {
+				Map<String, Object> res = new LinkedHashMap<>();
+				res.put(ID, items[i].getId());
+				if (items[i].isFailed()) {
+					res.put(ERROR, items[i].getFailureMessage());
+				} else {
+					res.put(RESULT, items[i].getResponse().getResult().getLowercase());
+					// elastic creates missing index on first write
+					indexCatalog.indexCreated(items[i].getIndex());
+				}
+				setResult(request.requests().get(i), res);
+			}
+			logger.debug("Bulk " + executionId + " took " + response.getTook());
+		}
+
+		@Override
+		public void afterBulk(long executionId, BulkRequest request,
+				Throwable failure) {
+			logger.error("Bulk " + executionId + " failed: " + failure.getMessage());
+			for (DocWriteRequest<?> req : request.requests()) {
+				Map<String, Object> res = new LinkedHashMap<>();
+				res.put(ID, req.id());
+				res.put(ERROR, failure.getMessage());
+				setResult(req, res);
+			}
+		}
+
+		private void setResult(DocWriteRequest<?> req, Map<String, Object> res) {
+			Integer pos = positions.remove(req);
+			if (pos != null) {
+				results.put(pos, res);
+			}
+		}
+	}
+}
@@ -0,0 +1,107 @@
+/**
+ *
+ */
+package com.synectiks.search.manager;
+
+import java.util.StringJoiner;
+
+import javax.annotation.PostConstruct;
+
+import org.elasticsearch.index.query.QueryBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.elasticsearch.core.query.SearchQuery;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.synectiks.commons.utils.IUtils;
+import com.synectiks.search.config.ApplicationProperties;
+import com.synectiks.search.queries.Aggregator;
+import com.synectiks.search.queries.ESExpression.FiltersQueryBuilder;
+import com.synectiks.search.queries.ESExpression.StringQueryBuilder;
+import com.synectiks.search.utils.EntityMetadata;
+import com.synectiks.search.utils.IESUtils;
+
+/**
+ * Cache of queries compiled from filters json or query string, keyed by
+ * normalized query text only. Index name is resolved from class on each
+ * request, so SpEL and time based index names are evaluated per call,
+ * and only pagination and aggregation are applied on a cached query.
+ * Cache size is set by {@code application.query-cache.compiled-queries}.
+ * <br/>
+ * Cached {@code QueryBuilder} is shared by requests and must not be
+ * modified, use {@link FiltersQueryBuilder#buildQuery()} to get a query
+ * to add more clauses.
+ * @author Rajesh
+ */
+@Component
+public class CompiledQueries {
+
+	@Autowired
+	private ApplicationProperties props;
+
+	private Cache<String, QueryBuilder> queries;
+
+	@PostConstruct
+	public void init() {
+		queries = Caffeine.newBuilder()
+				.maximumSize(props.getQueryCache().getCompiledQueries()).build();
+	}
+
+	/**
+	 * Method to build Elastic {@code SearchQuery} for filters json,
+	 * filters are parsed and compiled only once for same json text.
+	 * @param cls
+	 * @param filters
+	 * @param pageNo
+	 * @param pageSize
+	 * @param aggre Aggregator or null
+	 * @return
+	 * @throws IllegalArgumentException if filters json is invalid
+	 */
+	public SearchQuery filters(String cls, String filters,
+			int pageNo, int pageSize, Aggregator aggre) {
+		QueryBuilder query = queries.get(
+				key("filters", IESUtils.getCanonicalJson(filters)), k -> {
+					FiltersQueryBuilder fqb = FiltersQueryBuilder.create(cls, filters, 0, 0);
+					return IUtils.isNull(fqb) ? null : fqb.buildQuery();
+				});
+		if (IUtils.isNull(query)) {
+			throw new IllegalArgumentException("Failed to parse filters: " + filters);
+		}
+		return IESUtils.getNativeSearchQuery(query, getIndexName(cls),
+				IESUtils.getPageRequest(pageNo, pageSize),
+				IUtils.isNull(aggre) ? null : aggre.createAggregationBuilders());
+	}
+
+	/**
+	 * Method to build Elastic {@code SearchQuery} for query string,
+	 * query is compiled only once for same query and fields.
+	 * @param query
+	 * @param fields comma separated fields or null
+	 * @param cls
+	 * @param pageNo
+	 * @param pageSize
+	 * @return
+	 */
+	public SearchQuery string(String query, String fields, String cls,
+			int pageNo, int pageSize) {
+		QueryBuilder qb = queries.get(key("string", query, fields),
+				k -> new StringQueryBuilder(query).withFields(fields).buildQuery());
+		return IESUtils.getNativeSearchQuery(qb, getIndexName(cls),
+				IESUtils.getPageRequest(pageNo, pageSize), null);
+	}
+
+	private static String getIndexName(String cls) {
+		return IUtils.isNullOrEmpty(cls) ? null
+				: IESUtils.getIndexName(EntityMetadata.classOf(cls));
+	}
+
+	private static String key(Object... parts) {
+		StringJoiner joiner = new StringJoiner("\u0000");
+		for (Object part : parts) {
+			joiner.add(String.valueOf(part));
+		}
+		return joiner.toString();
+	}
+}
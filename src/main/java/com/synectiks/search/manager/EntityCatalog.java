@@ -0,0 +1,101 @@
+/**
+ *
+ */
+package com.synectiks.search.manager;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.elasticsearch.core.ElasticsearchTemplate;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.synectiks.commons.utils.IUtils;
+import com.synectiks.search.utils.EntityCatalogGenerator;
+import com.synectiks.search.utils.EntityMetadata;
+
+/**
+ * Catalog of {@code IESEntity} classes with their index name and type.
+ * Entities of build time packages are read from catalog written by
+ * {@link EntityCatalogGenerator} and their metadata is registered on
+ * startup, other packages are scanned once on first request.
+ * @author Rajesh
+ */
+@Component
+public class EntityCatalog {
+
+	private static final Logger logger = LoggerFactory.getLogger(EntityCatalog.class);
+
+	@Autowired
+	private ElasticsearchTemplate esTemplate;
+
+	private List<String> packages = Collections.emptyList();
+	private List<Map<String, String>> entities = Collections.emptyList();
+	private final Map<String, List<Map<String, String>>> scanned =
+			new ConcurrentHashMap<>();
+
+	@PostConstruct
+	public void init() {
+		// resolve index names same as elastic template
+		EntityMetadata.setMappingContext(
+				esTemplate.getElasticsearchConverter().getMappingContext());
+		try (InputStream in = Thread.currentThread().getContextClassLoader()
+				.getResourceAsStream(EntityCatalogGenerator.CATALOG)) {
+			if (IUtils.isNull(in)) {
+				logger.warn("Entities catalog not found, packages will be scanned.");
+				return;
+			}
+			JsonNode node = IUtils.OBJECT_MAPPER.readTree(in);
+			packages = Collections.unmodifiableList(IUtils.OBJECT_MAPPER.convertValue(
+					node.get(EntityCatalogGenerator.PACKAGES), List.class));
+			entities = Collections.unmodifiableList(IUtils.OBJECT_MAPPER.convertValue(
+					node.get(EntityCatalogGenerator.ENTITIES), List.class));
+			logger.info("Loaded " + entities.size() + " entities of " + packages);
+			List<String> classes = new ArrayList<>();
+			for (Map<String, String> entity : entities) {
+				classes.add(entity.get(EntityCatalogGenerator.CLS));
+			}
+			EntityMetadata.register(classes);
+		} catch (Exception e) {
+			logger.error("Failed to load entities catalog: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Method to get entities of package and its sub packages.
+	 * @param pkg
+	 * @return list of maps with cls, indexName and indexType keys
+	 */
+	public List<Map<String, String>> getEntities(String pkg) {
+		if (isCataloged(pkg)) {
+			List<Map<String, String>> lst = new ArrayList<>();
+			String prefix = pkg + ".";
+			for (Map<String, String> entity : entities) {
+				if (entity.get(EntityCatalogGenerator.CLS).startsWith(prefix)) {
+					lst.add(entity);
+				}
+			}
+			return lst;
+		}
+		return scanned.computeIfAbsent(pkg,
+				k -> Collections.unmodifiableList(EntityCatalogGenerator.scan(k)));
+	}
+
+	private boolean isCataloged(String pkg) {
+		for (String cataloged : packages) {
+			if (pkg.equals(cataloged) || pkg.startsWith(cataloged + ".")) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,246 @@
+/**
+ *
+ */
+package com.synectiks.search.manager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.elasticsearch.action.admin.indices.mapping.get.GetMappingsResponse;
+import org.elasticsearch.cluster.metadata.MappingMetaData;
+import org.elasticsearch.common.collect.ImmutableOpenMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.elasticsearch.core.ElasticsearchTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.synectiks.commons.utils.IUtils;
+import com.synectiks.search.utils.EntityMetadata;
+import com.synectiks.search.utils.IESUtils;
+
+/**
+ * In memory catalog of entity fields names, types and nested paths
+ * created from elastic index mappings. Fields of an index are computed
+ * once with their json responses and refreshed when its mapping changes.
+ * @author Rajesh
+ */
+@Component
+public class FieldCatalog {
+
+	private static final Logger logger = LoggerFactory.getLogger(FieldCatalog.class);
+
+	private static final String PROPERTIES = "properties";
+	private static final String TYPE = "type";
+	private static final String OBJECT = "object";
+	private static final String NESTED = "nested";
+	private static final String FIELDS = "fields";
+	private static final String NORMALIZER = "normalizer";
+
+	@Autowired
+	private ElasticsearchTemplate esTemplate;
+
+	private final Map<String, Fields> catalog = new ConcurrentHashMap<>();
+
+	/**
+	 * Method to get fields of entity index, mapping is loaded from
+	 * elastic if fields are not in catalog.
+	 * @param meta metadata of entity class with existing index
+	 * @return
+	 */
+	public Fields get(EntityMetadata meta) {
+		String key = meta.getIndexName() + "/" + meta.getIndexType();
+		return catalog.computeIfAbsent(key, k -> {
+			logger.info("Loading fields of " + k);
+			return new Fields(esTemplate.getMapping(meta.getClazz()));
+		});
+	}
+
+	/**
+	 * Method to get fields of all types of index, mapping is loaded from
+	 * elastic if fields are not in catalog.
+	 * @param index existing index name
+	 * @return
+	 */
+	public Fields get(String index) {
+		return catalog.computeIfAbsent(index + "/", k -> {
+			logger.info("Loading fields of index " + index);
+			return new Fields(getMappings(index));
+		});
+	}
+
+	/**
+	 * Method to check if field of index has keyword sub field with key
+	 * normalizer to lookup values ignoring case. Fields are reloaded once
+	 * if field is not in catalog, as it could be added by dynamic mapping.
+	 * @param index existing index name
+	 * @param field
+	 * @return
+	 */
+	public boolean isNormalized(String index, String field) {
+		Fields fields = get(index);
+		if (!fields.getTypes().containsKey(field)) {
+			catalog.remove(index + "/", fields);
+			fields = get(index);
+		}
+		return fields.isNormalized(field);
+	}
+
+	/**
+	 * Method to remove fields of all types of index from catalog.
+	 * @param index
+	 */
+	public void invalidate(String index) {
+		if (!IUtils.isNullOrEmpty(index)) {
+			String prefix = index + "/";
+			catalog.keySet().removeIf(key -> key.startsWith(prefix));
+		}
+	}
+
+	/**
+	 * Method to load mappings of all types of index.
+	 * @param index
+	 * @return map of type name and its mapping
+	 */
+	private Map<String, Object> getMappings(String index) {
+		GetMappingsResponse res = esTemplate.getClient().admin().indices()
+				.prepareGetMappings(index).get();
+		Map<String, Object> mappings = new LinkedHashMap<>();
+		Iterator<ImmutableOpenMap<String, MappingMetaData>> it =
+				res.getMappings().valuesIt();
+		while (it.hasNext()) {
+			ImmutableOpenMap<String, MappingMetaData> types = it.next();
+			Iterator<String> names = types.keysIt();
+			while (names.hasNext()) {
+				String type = names.next();
+				mappings.put(type, types.get(type).sourceAsMap());
+			}
+		}
+		return mappings;
+	}
+
+	/**
+	 * Fields of an index type with precomputed json responses.
+	 */
+	public static class Fields {
+
+		private final List<String> names = new ArrayList<>();
+		private final Map<String, String> types = new LinkedHashMap<>();
+		private final List<String> nestedPaths = new ArrayList<>();
+		private final Set<String> normalized = new HashSet<>();
+		private final byte[] namesJson;
+		private final byte[] catalogJson;
+		private final String etag;
+
+		@SuppressWarnings("rawtypes")
+		Fields(Map mapping) {
+			findFields(null, mapping);
+			Map<String, Object> res = new LinkedHashMap<>();
+			res.put("fields", types);
+			res.put("nestedPaths", nestedPaths);
+			try {
+				namesJson = IUtils.OBJECT_MAPPER.writeValueAsBytes(names);
+				catalogJson = IUtils.OBJECT_MAPPER.writeValueAsBytes(res);
+			} catch (JsonProcessingException e) {
+				throw new IllegalStateException(e.getMessage(), e);
+			}
+			etag = "\"" + DigestUtils.md5DigestAsHex(catalogJson) + "\"";
+		}
+
+		public List<String> getNames() {
+			return Collections.unmodifiableList(names);
+		}
+
+		public Map<String, String> getTypes() {
+			return Collections.unmodifiableMap(types);
+		}
+
+		public List<String> getNestedPaths() {
+			return Collections.unmodifiableList(nestedPaths);
+		}
+
+		/**
+		 * Method to get json response of fields
+		 * @param withTypes set true to get field types and nested paths
+		 * else only list of field names.
+		 * @return
+		 */
+		public byte[] getResponse(boolean withTypes) {
+			return withTypes ? catalogJson : namesJson;
+		}
+
+		public String getEtag() {
+			return etag;
+		}
+
+		/**
+		 * Method to check if field has normalized keyword sub field.
+		 * @param field
+		 * @return
+		 */
+		public boolean isNormalized(String field) {
+			return normalized.contains(field);
+		}
+
+		/**
+		 * Method to find properties in mapping, all other keys are walked
+		 * to reach the properties.
+		 * @param parent
+		 * @param map
+		 */
+		@SuppressWarnings("rawtypes")
+		private void findFields(String parent, Map map) {
+			if (IUtils.isNull(map)) {
+				return;
+			}
+			for (Object key : map.keySet()) {
+				Object val = map.get(key);
+				if (val instanceof Map) {
+					if (PROPERTIES.equals(key)) {
+						addFields(parent, (Map) val);
+					} else {
+						findFields(parent, (Map) val);
+					}
+				}
+			}
+		}
+
+		@SuppressWarnings("rawtypes")
+		private void addFields(String parent, Map props) {
+			for (Object field : props.keySet()) {
+				Object val = props.get(field);
+				if (!(val instanceof Map)) {
+					continue;
+				}
+				Map fldMap = (Map) val;
+				String key = IUtils.isNullOrEmpty(parent) ?
+						field.toString() : (parent + "." + field);
+				Object type = fldMap.get(TYPE);
+				names.add(key);
+				types.put(key, IUtils.isNull(type) ? OBJECT : type.toString());
+				if (NESTED.equals(type)) {
+					nestedPaths.add(key);
+				}
+				if (fldMap.get(FIELDS) instanceof Map) {
+					Object sub = ((Map) fldMap.get(FIELDS)).get(IESUtils.NORMALIZED_FIELD);
+					if (sub instanceof Map && IESUtils.KEY_NORMALIZER.equals(
+							((Map) sub).get(NORMALIZER))) {
+						normalized.add(key);
+					}
+				}
+				if (fldMap.get(PROPERTIES) instanceof Map) {
+					addFields(key, (Map) fldMap.get(PROPERTIES));
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,288 @@
+/**
+ *
+ */
+package com.synectiks.search.manager;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import javax.annotation.PostConstruct;
+
+import org.elasticsearch.search.aggregations.bucket.histogram.Histogram;
+import org.joda.time.DateTime;
+import org.joda.time.format.ISODateTimeFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.synectiks.commons.utils.IUtils;
+import com.synectiks.search.config.ApplicationProperties;
+import com.synectiks.search.queries.Aggregator;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Cache of closed buckets of date histogram aggregations keyed by index
+ * and normalized filters and aggregator, which includes field, interval
+ * and time zone. Buckets before the one of scan time less the staleness
+ * are closed, so only the latest buckets and newer documents are searched
+ * again and merged with cached buckets.
+ * <br/>
+ * Newly created documents dated in closed range reopen buckets from their
+ * date, any other change to index drops its histograms. Whole range is
+ * scanned again after configured refresh interval, to drop buckets which
+ * moved out of relative ranges like {@code now-90d}.
+ * <br/>
+ * Only writes through this instance invalidate its histograms, writes of
+ * other instances into closed buckets are counted after the refresh
+ * interval, so keep it a small multiple of the staleness.
+ * @author Rajesh
+ */
+@Component
+public class HistogramCache {
+
+	private static final Logger logger = LoggerFactory.getLogger(HistogramCache.class);
+	private static final String NAME = "search.histogram.cache";
+
+	@Autowired
+	private ApplicationProperties props;
+	@Autowired
+	private MeterRegistry registry;
+
+	private Cache<String, Buckets> cache;
+	// incremented on each invalidation to discard results of older scans,
+	// weak values drop generations of indexes with no scan in progress
+	private final Cache<String, AtomicLong> generations =
+			Caffeine.newBuilder().weakValues().build();
+
+	@PostConstruct
+	public void init() {
+		ApplicationProperties.QueryCache conf = props.getQueryCache();
+		cache = Caffeine.newBuilder()
+				.maximumSize(conf.getHistogramEntries())
+				.expireAfterAccess(conf.getHistogramRefresh(), TimeUnit.MILLISECONDS)
+				.recordStats()
+				.build();
+		CaffeineCacheMetrics.monitor(registry, cache, NAME);
+	}
+
+	/**
+	 * Method to get histogram counts using cached closed buckets,
+	 * loader is called to search buckets from date of open bucket.
+	 * @param index index name
+	 * @param query normalized query, create it using {@link QueryCache#key(Object...)}
+	 * @param aggre date histogram aggregator
+	 * @param loader to search histogram of documents dated on or after
+	 * the millis, of all documents if millis is null
+	 * @return map of bucket key, doc_count values in keys order
+	 */
+	public Map<String, Object> get(String index, String query, Aggregator aggre,
+			Function<Long, Histogram> loader) {
+		String key = index + "/" + query;
+		ApplicationProperties.QueryCache conf = props.getQueryCache();
+		AtomicLong generation = generation(index);
+		long gen = generation.get();
+		long scanned = System.currentTimeMillis();
+		Buckets cached = cache.getIfPresent(key);
+		if (!IUtils.isNull(cached) && scanned - cached.created
+				> conf.getHistogramRefresh()) {
+			cached = null;
+		}
+		Long from = IUtils.isNull(cached) ? null : cached.closedUntil;
+		registry.counter(NAME + ".scans", "range",
+				IUtils.isNull(from) ? "full" : "partial").increment();
+		Histogram hist = loader.apply(from);
+		TreeMap<Long, Bucket> buckets = new TreeMap<>();
+		if (!IUtils.isNull(cached)) {
+			buckets.putAll(cached.closed);
+		}
+		if (!IUtils.isNull(hist)) {
+			for (Histogram.Bucket b : hist.getBuckets()) {
+				buckets.put(toMillis(b.getKey()),
+						new Bucket(b.getKeyAsString(), b.getDocCount()));
+			}
+		}
+		if (!buckets.isEmpty()) {
+			// bucket of scan time less staleness and newer ones stay open
+			Long open = buckets.floorKey(scanned - conf.getStaleness());
+			long closedUntil = IUtils.isNull(open) ? buckets.firstKey() : open;
+			Buckets next = new Buckets(aggre.getFieldName(),
+					new TreeMap<>(buckets.headMap(closedUntil)), closedUntil,
+					IUtils.isNull(cached) ? scanned : cached.created);
+			synchronized (generation) {
+				// skip if index changed while searching
+				if (generation.get() == gen) {
+					if (IUtils.isNull(cached)) {
+						cache.put(key, next);
+					} else {
+						cache.asMap().replace(key, cached, next);
+					}
+				}
+			}
+		}
+		Map<String, Object> results = new LinkedHashMap<>();
+		for (Bucket b : buckets.values()) {
+			String bKey = b.key;
+			if (!IUtils.isNullOrEmpty(aggre.getFormat())) {
+				bKey = IUtils.getFormatedDateFromLongString(bKey,
+						aggre.getFormat(), aggre.getLocale());
+			}
+			results.put(bKey, b.docCount);
+		}
+		return results;
+	}
+
+	/**
+	 * Method to invalidate histograms of index.
+	 * @param index
+	 * @param created sources of newly created documents, histogram buckets
+	 * from their dates are reopened. If null all histograms of index are
+	 * removed, pass null if any document is updated or overwritten.
+	 */
+	public void invalidate(String index, List<Map<String, Object>> created) {
+		if (IUtils.isNullOrEmpty(index)) {
+			return;
+		}
+		String prefix = index + "/";
+		AtomicLong generation = generation(index);
+		synchronized (generation) {
+			generation.incrementAndGet();
+			for (String key : cache.asMap().keySet()) {
+				if (!key.startsWith(prefix)) {
+					continue;
+				}
+				if (IUtils.isNull(created)) {
+					cache.invalidate(key);
+				} else {
+					cache.asMap().computeIfPresent(key, (k, b) -> b.reopen(created));
+				}
+			}
+		}
+		logger.debug("Invalidated histograms of index: " + index);
+	}
+
+	private AtomicLong generation(String index) {
+		return generations.get(index, k -> new AtomicLong());
+	}
+
+	/**
+	 * Method to convert bucket key or document date value into millis.
+	 * @param val
+	 * @return millis or null if value is not a date
+	 */
+	private static Long toMillis(Object val) {
+		if (val instanceof DateTime) {
+			return ((DateTime) val).getMillis();
+		} else if (val instanceof Date) {
+			return ((Date) val).getTime();
+		} else if (val instanceof Number) {
+			return ((Number) val).longValue();
+		} else if (val instanceof String) {
+			try {
+				return Long.parseLong((String) val);
+			} catch (NumberFormatException nfe) {
+				try {
+					return ISODateTimeFormat.dateTimeParser().parseMillis((String) val);
+				} catch (IllegalArgumentException iae) {
+					return null;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Method to get value of dotted field path from document source.
+	 * @param doc
+	 * @param field
+	 * @return
+	 */
+	@SuppressWarnings("rawtypes")
+	private static Object getValue(Map<String, Object> doc, String field) {
+		Object val = doc;
+		for (String key : field.split("\\.")) {
+			if (!(val instanceof Map)) {
+				return null;
+			}
+			val = ((Map) val).get(key);
+		}
+		return val;
+	}
+
+	/**
+	 * Bucket key as returned by elastic and its documents count.
+	 */
+	private static class Bucket {
+
+		private final String key;
+		private final long docCount;
+
+		Bucket(String key, long docCount) {
+			this.key = key;
+			this.docCount = docCount;
+		}
+	}
+
+	/**
+	 * Closed buckets of a histogram by bucket start millis, open range
+	 * starts at {@code closedUntil}.
+	 */
+	private static class Buckets {
+
+		private final String field;
+		private final NavigableMap<Long, Bucket> closed;
+		private final long closedUntil;
+		private final long created;
+
+		Buckets(String field, NavigableMap<Long, Bucket> closed,
+				long closedUntil, long created) {
+			this.field = field;
+			this.closed = closed;
+			this.closedUntil = closedUntil;
+			this.created = created;
+		}
+
+		/**
+		 * Method to reopen buckets from the earliest date of created documents.
+		 * @param created
+		 * @return buckets with reopened range, null if range is unknown
+		 */
+		Buckets reopen(List<Map<String, Object>> created) {
+			long until = closedUntil;
+			for (Map<String, Object> doc : created) {
+				Object val = getValue(doc, field);
+				if (IUtils.isNull(val)) {
+					// not counted in histogram
+					continue;
+				}
+				Long millis = toMillis(val);
+				if (IUtils.isNull(millis)) {
+					return null;
+				}
+				if (millis < until) {
+					Long floor = closed.floorKey(millis);
+					if (IUtils.isNull(floor)) {
+						return null;
+					}
+					until = floor;
+				}
+			}
+			if (until == closedUntil) {
+				return this;
+			}
+			return new Buckets(field, new TreeMap<>(closed.headMap(until, false)),
+					until, this.created);
+		}
+	}
+}
@@ -0,0 +1,250 @@
+/**
+ *
+ */
+package com.synectiks.search.manager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.elasticsearch.action.admin.indices.get.GetIndexResponse;
+import org.elasticsearch.cluster.metadata.AliasMetaData;
+import org.elasticsearch.cluster.metadata.MappingMetaData;
+import org.elasticsearch.common.collect.ImmutableOpenMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.elasticsearch.core.ElasticsearchTemplate;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+
+import com.synectiks.commons.utils.IUtils;
+import com.synectiks.search.config.ApplicationProperties;
+
+/**
+ * In memory catalog of elastic indices with their aliases and types.
+ * Catalog is reloaded every {@code application.index-catalog.refresh-interval}
+ * millis and updated immediately when this service writes into an index
+ * or finds it missing, so existence checks are a map lookup. Indices
+ * not found in elastic are remembered as missing until next reload. Fields of
+ * created, deleted or remapped indices are dropped from fields catalog,
+ * so fields added by dynamic mapping are seen after next reload.
+ * @author Rajesh
+ */
+@Component
+public class IndexCatalog implements SchedulingConfigurer {
+
+	private static final Logger logger = LoggerFactory.getLogger(IndexCatalog.class);
+
+	@Autowired
+	private ElasticsearchTemplate esTemplate;
+	@Autowired
+	private ApplicationProperties props;
+	@Autowired
+	private FieldCatalog fieldCatalog;
+
+	// Immutable snapshots replaced on each reload
+	private volatile Map<String, IndexInfo> indices = null;
+	private volatile Map<String, String> aliases = Collections.emptyMap();
+	// Hash of mappings by index, to find indices with changed mappings
+	private volatile Map<String, Integer> mappingHashes = Collections.emptyMap();
+	// Indices checked missing in elastic since last reload
+	private volatile Set<String> missing = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Method to check if index or alias exists. A miss is checked in
+	 * elastic once, found index is added into catalog, as index could be
+	 * created by other services, and missing index is not checked again
+	 * until next reload or until this service creates it.
+	 * @param index
+	 * @return
+	 */
+	public boolean exists(String index) {
+		if (IUtils.isNullOrEmpty(index)) {
+			return false;
+		}
+		if (getIndices().containsKey(index) || aliases.containsKey(index)) {
+			return true;
+		}
+		if (missing.contains(index)) {
+			return false;
+		}
+		if (esTemplate.indexExists(index)) {
+			indexCreated(index);
+			return true;
+		}
+		missing.add(index);
+		return false;
+	}
+
+	/**
+	 * Method to get index details by index or alias name.
+	 * @param index
+	 * @return {@code IndexInfo} or null
+	 */
+	public IndexInfo getIndex(String index) {
+		if (IUtils.isNullOrEmpty(index)) {
+			return null;
+		}
+		IndexInfo info = getIndices().get(index);
+		if (IUtils.isNull(info) && aliases.containsKey(index)) {
+			info = getIndices().get(aliases.get(index));
+		}
+		return info;
+	}
+
+	/**
+	 * Method to list all index names.
+	 * @return
+	 */
+	public List<String> getIndexNames() {
+		List<String> lst = new ArrayList<>(getIndices().keySet());
+		Collections.sort(lst);
+		return lst;
+	}
+
+	/**
+	 * Method to add newly created index into catalog.
+	 * @param index
+	 */
+	public synchronized void indexCreated(String index) {
+		if (!IUtils.isNullOrEmpty(index)) {
+			missing.remove(index);
+		}
+		if (!IUtils.isNullOrEmpty(index) && !getIndices().containsKey(index)) {
+			Map<String, IndexInfo> map = new HashMap<>(getIndices());
+			map.put(index, new IndexInfo(index,
+					Collections.emptyList(), Collections.emptyList()));
+			indices = Collections.unmodifiableMap(map);
+			fieldCatalog.invalidate(index);
+		}
+	}
+
+	/**
+	 * Method to remove deleted index from catalog.
+	 * @param index
+	 */
+	public synchronized void indexDeleted(String index) {
+		if (!IUtils.isNullOrEmpty(index) && getIndices().containsKey(index)) {
+			Map<String, IndexInfo> map = new HashMap<>(getIndices());
+			map.remove(index);
+			indices = Collections.unmodifiableMap(map);
+			Map<String, String> als = new HashMap<>(aliases);
+			als.values().removeIf(index::equals);
+			aliases = Collections.unmodifiableMap(als);
+			fieldCatalog.invalidate(index);
+		}
+	}
+
+	@Override
+	public void configureTasks(ScheduledTaskRegistrar registrar) {
+		registrar.addFixedDelayTask(this::refresh,
+				props.getIndexCatalog().getRefreshInterval());
+	}
+
+	/**
+	 * Method to reload all indices from elastic.
+	 */
+	public void refresh() {
+		try {
+			GetIndexResponse res = esTemplate.getClient().admin()
+					.indices().prepareGetIndex().get();
+			Map<String, IndexInfo> map = new HashMap<>();
+			Map<String, String> als = new HashMap<>();
+			Map<String, Integer> hashes = new HashMap<>();
+			for (String index : res.getIndices()) {
+				List<String> idxAliases = new ArrayList<>();
+				List<AliasMetaData> aliasData = res.getAliases().get(index);
+				if (!IUtils.isNull(aliasData)) {
+					for (AliasMetaData alias : aliasData) {
+						idxAliases.add(alias.alias());
+						als.put(alias.alias(), index);
+					}
+				}
+				List<String> types = new ArrayList<>();
+				int hash = 0;
+				ImmutableOpenMap<String, MappingMetaData> mappings = res.getMappings()
+						.get(index);
+				if (!IUtils.isNull(mappings)) {
+					Iterator<String> it = mappings.keysIt();
+					while (it.hasNext()) {
+						String type = it.next();
+						types.add(type);
+						hash = 31 * hash + mappings.get(type).source().hashCode();
+					}
+				}
+				map.put(index, new IndexInfo(index, idxAliases, types));
+				hashes.put(index, hash);
+			}
+			Map<String, Integer> previous = mappingHashes;
+			indices = Collections.unmodifiableMap(map);
+			aliases = Collections.unmodifiableMap(als);
+			mappingHashes = Collections.unmodifiableMap(hashes);
+			missing = ConcurrentHashMap.newKeySet();
+			// drop fields of indices created, deleted or remapped since last reload
+			Set<String> names = new HashSet<>(previous.keySet());
+			names.addAll(hashes.keySet());
+			for (String index : names) {
+				if (!Objects.equals(previous.get(index), hashes.get(index))) {
+					fieldCatalog.invalidate(index);
+				}
+			}
+			logger.debug("Index catalog reloaded with " + map.size() + " indices");
+		} catch (Exception e) {
+			logger.error("Failed to reload index catalog: " + e.getMessage());
+		}
+	}
+
+	private Map<String, IndexInfo> getIndices() {
+		if (IUtils.isNull(indices)) {
+			synchronized (this) {
+				if (IUtils.isNull(indices)) {
+					refresh();
+				}
+			}
+		}
+		return IUtils.isNull(indices) ? Collections.emptyMap() : indices;
+	}
+
+	/**
+	 * Class to hold index details.
+	 */
+	public static class IndexInfo {
+
+		private final String name;
+		private final List<String> aliases;
+		private final List<String> types;
+
+		public IndexInfo(String name, List<String> aliases, List<String> types) {
+			this.name = name;
+			this.aliases = Collections.unmodifiableList(aliases);
+			this.types = Collections.unmodifiableList(types);
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public List<String> getAliases() {
+			return aliases;
+		}
+
+		public List<String> getTypes() {
+			return types;
+		}
+
+		@Override
+		public String toString() {
+			return "IndexInfo [name=" + name + ", aliases=" + aliases
+					+ ", types=" + types + "]";
+		}
+	}
+}
@@ -0,0 +1,72 @@
+/**
+ *
+ */
+package com.synectiks.search.manager;
+
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.elasticsearch.core.ElasticsearchTemplate;
+import org.springframework.stereotype.Component;
+
+import com.synectiks.commons.utils.IUtils;
+import com.synectiks.search.config.ApplicationProperties;
+import com.synectiks.search.utils.IESUtils;
+
+/**
+ * Index template which maps dynamic string fields of new indices with
+ * a keyword and a lowercase normalized keyword sub field, so keys could
+ * be looked up ignoring case by a term query. Template applies to indices
+ * matching {@code application.index-catalog.key-template-patterns} when
+ * they are created, existing indices have to be reindexed to use it.
+ * @author Rajesh
+ */
+@Component
+public class IndexTemplate {
+
+	private static final Logger logger = LoggerFactory.getLogger(IndexTemplate.class);
+
+	private static final String NAME = "search_keys";
+	private static final String DEFAULT_TYPE = "_default_";
+	private static final String NORMALIZER = "index.analysis.normalizer."
+			+ IESUtils.KEY_NORMALIZER;
+	private static final String MAPPING = "{\"dynamic_templates\": [{\"strings\": {"
+			+ "\"match_mapping_type\": \"string\", \"mapping\": {\"type\": \"text\", "
+			+ "\"fields\": {\"keyword\": {\"type\": \"keyword\", \"ignore_above\": 256}, "
+			+ "\"" + IESUtils.NORMALIZED_FIELD + "\": {\"type\": \"keyword\", "
+			+ "\"normalizer\": \"" + IESUtils.KEY_NORMALIZER + "\", "
+			+ "\"ignore_above\": 256}}}}}]}";
+
+	@Autowired
+	private ElasticsearchTemplate esTemplate;
+	@Autowired
+	private ApplicationProperties props;
+
+	@PostConstruct
+	public void init() {
+		List<String> patterns = props.getIndexCatalog().getKeyTemplatePatterns();
+		if (IUtils.isNull(patterns) || patterns.isEmpty()) {
+			return;
+		}
+		try {
+			esTemplate.getClient().admin().indices().preparePutTemplate(NAME)
+					.setPatterns(patterns)
+					// lowest order, so explicit templates override it
+					.setOrder(Integer.MIN_VALUE)
+					.setSettings(Settings.builder()
+							.put(NORMALIZER + ".type", "custom")
+							.putList(NORMALIZER + ".filter", "lowercase"))
+					.addMapping(DEFAULT_TYPE, MAPPING, XContentType.JSON)
+					.get();
+			logger.info("Key template is added for indices: " + patterns);
+		} catch (Exception e) {
+			logger.error("Failed to add key template: " + e.getMessage());
+		}
+	}
+}
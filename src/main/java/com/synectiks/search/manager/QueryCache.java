@@ -0,0 +1,279 @@
+/**
+ *
+ */
+package com.synectiks.search.manager;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.synectiks.commons.utils.IUtils;
+import com.synectiks.search.config.ApplicationProperties;
+import com.synectiks.search.utils.IESUtils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Cache of query results i.e. counts, entities lists and aggregations
+ * keyed by index and normalized query. Results are loaded outside of
+ * cache locks with identical concurrent loads coalesced, kept for
+ * configured staleness bound, evicted by their json size in bytes and
+ * invalidated with histograms of the index when its documents are
+ * indexed or deleted. Keys have generation of their index, invalidation
+ * moves index to a new generation, so it does not scan the cache and
+ * old entries are evicted once stale.
+ * @author Rajesh
+ */
+@Component
+public class QueryCache {
+
+	private static final Logger logger = LoggerFactory.getLogger(QueryCache.class);
+	private static final String NAME = "search.query.cache";
+	// Size of cache entry without its result in bytes
+	private static final int ENTRY_WEIGHT = 64;
+	// Size of result which could not be written as json
+	private static final int UNKNOWN_WEIGHT = 1024;
+
+	@Autowired
+	private ApplicationProperties props;
+	@Autowired
+	private MeterRegistry registry;
+	@Autowired
+	private HistogramCache histograms;
+	@Autowired
+	private RequestCoalescer coalescer;
+
+	private Cache<QueryKey, CachedResult> cache;
+	// Generation of each index, a missing index gets the latest generation
+	// of all, so entries older than its evicted generation are not reused
+	private final AtomicLong lastGeneration = new AtomicLong();
+	private final Cache<String, Long> generations = Caffeine.newBuilder()
+			.expireAfterAccess(1, TimeUnit.HOURS).build();
+	private Counter invalidations;
+	private DistributionSummary hitAge;
+
+	@PostConstruct
+	public void init() {
+		ApplicationProperties.QueryCache conf = props.getQueryCache();
+		cache = Caffeine.newBuilder()
+				.maximumWeight(conf.getMaxBytes())
+				.weigher((QueryKey key, CachedResult res) -> res.weight)
+				.expireAfterWrite(conf.getStaleness(), TimeUnit.MILLISECONDS)
+				.recordStats()
+				.build();
+		// hits, misses, evictions and size
+		CaffeineCacheMetrics.monitor(registry, cache, NAME);
+		Gauge.builder(NAME + ".staleness.bound", conf, ApplicationProperties.QueryCache::getStaleness)
+				.description("Max age in millis of a cached result").register(registry);
+		invalidations = registry.counter(NAME + ".invalidations");
+		hitAge = DistributionSummary.builder(NAME + ".hit.age")
+				.description("Age in millis of cached results served")
+				.baseUnit("milliseconds").register(registry);
+	}
+
+	/**
+	 * Method to get cached result or load it using loader. Loader is not
+	 * called inside cache compute, so a slow search does not block other
+	 * keys, identical concurrent loads share one call.
+	 * @param index index name
+	 * @param query normalized query, create it using {@link #key(Object...)}
+	 * @param loader to load result from elastic
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T get(String index, String query, Supplier<T> loader) {
+		QueryKey key = newKey(index, query);
+		CachedResult res = cache.getIfPresent(key);
+		if (!IUtils.isNull(res)) {
+			hitAge.record(System.currentTimeMillis() - res.created);
+			return (T) res.value;
+		}
+		return coalescer.execute(index, key.inFlightKey(), () -> {
+			T value = loader.get();
+			cache.put(key, new CachedResult(value));
+			return value;
+		});
+	}
+
+	/**
+	 * Method to get cached result or load it using an async loader,
+	 * loaded result is cached once loader future completes. Identical
+	 * concurrent loads share one call.
+	 * @param index index name
+	 * @param query normalized query, create it using {@link #key(Object...)}
+	 * @param loader to load result from elastic asynchronously
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> CompletableFuture<T> getAsync(String index, String query,
+			Supplier<CompletableFuture<T>> loader) {
+		QueryKey key = newKey(index, query);
+		CachedResult res = cache.getIfPresent(key);
+		if (!IUtils.isNull(res)) {
+			hitAge.record(System.currentTimeMillis() - res.created);
+			return CompletableFuture.completedFuture((T) res.value);
+		}
+		return coalescer.executeAsync(index, key.inFlightKey(),
+				() -> loader.get().thenApply(value -> {
+					cache.put(key, new CachedResult(value));
+					return value;
+				}));
+	}
+
+	/**
+	 * Method to remove all cached results and histograms of index.
+	 * @param index
+	 */
+	public void invalidate(String index) {
+		invalidate(index, null);
+	}
+
+	/**
+	 * Method to remove all cached results of index, histograms keep their
+	 * closed buckets before dates of created documents.
+	 * @param index
+	 * @param created sources of created documents, null if documents
+	 * are updated or deleted.
+	 */
+	public void invalidate(String index, List<Map<String, Object>> created) {
+		if (!IUtils.isNullOrEmpty(index)) {
+			generations.put(index, lastGeneration.incrementAndGet());
+			histograms.invalidate(index, created);
+			invalidations.increment();
+			logger.debug("Invalidated results of index: " + index);
+		}
+	}
+
+	private QueryKey newKey(String index, String query) {
+		return new QueryKey(index, query,
+				generations.get(index, k -> lastGeneration.get()));
+	}
+
+	/**
+	 * Method to create a query key from parts, json parts are normalized
+	 * so same query with different keys order or spaces uses same entry.
+	 * @param parts
+	 * @return
+	 */
+	public static String key(Object... parts) {
+		StringJoiner joiner = new StringJoiner("|");
+		for (Object part : parts) {
+			joiner.add(part instanceof String ?
+					IESUtils.getCanonicalJson((String) part) : String.valueOf(part));
+		}
+		return joiner.toString();
+	}
+
+	/**
+	 * Cached result with its creation time and size in bytes.
+	 */
+	static class CachedResult {
+
+		private final Object value;
+		private final int weight;
+		private final long created = System.currentTimeMillis();
+
+		CachedResult(Object value) {
+			this.value = value;
+			this.weight = weigh(value);
+		}
+
+		/**
+		 * Method to weigh result by its json size, which is counted while
+		 * writing it without buffering. Document sources are written as is.
+		 * @param value
+		 * @return
+		 */
+		static int weigh(Object value) {
+			CountingStream out = new CountingStream();
+			try {
+				IUtils.OBJECT_MAPPER.writeValue(out, value);
+			} catch (IOException e) {
+				logger.debug("Failed to weigh result: " + e.getMessage());
+				return ENTRY_WEIGHT + UNKNOWN_WEIGHT;
+			}
+			return (int) Math.min(Integer.MAX_VALUE, ENTRY_WEIGHT + out.count);
+		}
+	}
+
+	/**
+	 * Output stream which only counts written bytes.
+	 */
+	private static class CountingStream extends OutputStream {
+
+		private long count = 0;
+
+		@Override
+		public void write(int b) {
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			count += len;
+		}
+	}
+
+	/**
+	 * Cache key of index generation and normalized query.
+	 */
+	private static class QueryKey {
+
+		private final String index;
+		private final String query;
+		private final long generation;
+
+		QueryKey(String index, String query, long generation) {
+			this.index = index;
+			this.query = query;
+			this.generation = generation;
+		}
+
+		/**
+		 * @return key of load in flight, loads of newer generation
+		 * do not join loads started before invalidation.
+		 */
+		String inFlightKey() {
+			return query + "|" + generation;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(index, query, generation);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof QueryKey)) {
+				return false;
+			}
+			QueryKey other = (QueryKey) obj;
+			return generation == other.generation
+					&& Objects.equals(index, other.index)
+					&& Objects.equals(query, other.query);
+		}
+	}
+}
@@ -0,0 +1,101 @@
+/**
+ *
+ */
+package com.synectiks.search.manager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.synectiks.commons.utils.IUtils;
+
+/**
+ * Registry to run long by query operations in background and keep
+ * their status until caller fetches the result.
+ * @author Rajesh
+ */
+@Component
+public class QueryTaskRegistry {
+
+	private static final Logger logger = LoggerFactory.getLogger(QueryTaskRegistry.class);
+	// Finished tasks are removed after one hour if nobody asked for them.
+	private static final long TASK_TTL = 60 * 60 * 1000L;
+
+	private final Map<String, QueryTask> tasks = new ConcurrentHashMap<>();
+
+	@Autowired
+	@Qualifier("taskExecutor")
+	private Executor executor;
+
+	/**
+	 * Method to run the task in background.
+	 * @param name task name for logs
+	 * @param task
+	 * @return task id to query status
+	 */
+	public String submit(String name, Supplier<Map<String, Object>> task) {
+		String id = UUID.randomUUID().toString();
+		QueryTask qTask = new QueryTask(name,
+				CompletableFuture.supplyAsync(task, executor));
+		tasks.put(id, qTask);
+		logger.info("Submitted task " + name + ": " + id);
+		return id;
+	}
+
+	/**
+	 * Method to get task status, result is removed once it is returned.
+	 * @param id
+	 * @return status map or null if task not found
+	 */
+	public Map<String, Object> getStatus(String id) {
+		QueryTask task = IUtils.isNullOrEmpty(id) ? null : tasks.get(id);
+		if (IUtils.isNull(task)) {
+			return null;
+		}
+		Map<String, Object> res = new HashMap<>();
+		res.put("taskId", id);
+		res.put("name", task.name);
+		res.put("completed", task.future.isDone());
+		if (task.future.isDone()) {
+			try {
+				res.put("result", task.future.join());
+			} catch (Exception ex) {
+				res.put("error", ex.getMessage());
+			}
+			tasks.remove(id);
+		}
+		return res;
+	}
+
+	/**
+	 * Remove finished tasks which nobody queried.
+	 */
+	@Scheduled(fixedDelay = TASK_TTL)
+	public void removeExpired() {
+		long now = System.currentTimeMillis();
+		tasks.entrySet().removeIf(e -> e.getValue().future.isDone()
+				&& (now - e.getValue().created) > TASK_TTL);
+	}
+
+	private static class QueryTask {
+		private final String name;
+		private final long created = System.currentTimeMillis();
+		private final CompletableFuture<Map<String, Object>> future;
+
+		QueryTask(String name, CompletableFuture<Map<String, Object>> future) {
+			this.name = name;
+			this.future = future;
+		}
+	}
+}
@@ -0,0 +1,130 @@
+/**
+ *
+ */
+package com.synectiks.search.manager;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.synectiks.commons.utils.IUtils;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Coalesces identical concurrent read requests, callers of a key which is
+ * already in flight wait for the running elastic call and share its result.
+ * Nothing is kept once the call completes, next request of key is executed
+ * again. Saved calls are counted per request kind i.e. list, count, aggre.
+ * @author Rajesh
+ */
+@Component
+public class RequestCoalescer {
+
+	private static final String NAME = "search.coalescer";
+	private static final String KIND = "kind";
+
+	@Autowired
+	private MeterRegistry registry;
+
+	private final Map<String, CompletableFuture<Object>> inFlight =
+			new ConcurrentHashMap<>();
+
+	@PostConstruct
+	public void init() {
+		Gauge.builder(NAME + ".inflight", inFlight, Map::size)
+				.description("Number of distinct requests in flight").register(registry);
+	}
+
+	/**
+	 * Method to execute the call or wait for the identical call in flight.
+	 * @param index index name
+	 * @param query normalized query, create it using {@link QueryCache#key(Object...)}
+	 * its first part is used as request kind in metrics.
+	 * @param call to load result from elastic
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T execute(String index, String query, Supplier<T> call) {
+		String key = index + "/" + query;
+		CompletableFuture<Object> future = new CompletableFuture<>();
+		CompletableFuture<Object> running = inFlight.putIfAbsent(key, future);
+		if (!IUtils.isNull(running)) {
+			saved(query);
+			try {
+				return (T) running.join();
+			} catch (CompletionException ce) {
+				throw ce.getCause() instanceof RuntimeException ?
+						(RuntimeException) ce.getCause() : ce;
+			}
+		}
+		try {
+			T res = call.get();
+			inFlight.remove(key, future);
+			future.complete(res);
+			return res;
+		} catch (RuntimeException | Error th) {
+			inFlight.remove(key, future);
+			future.completeExceptionally(th);
+			throw th;
+		}
+	}
+
+	/**
+	 * Method to execute the async call or share the future of identical
+	 * call in flight. Each caller gets its own dependent future, so
+	 * cancelling it does not cancel the shared call of other callers.
+	 * @param index index name
+	 * @param query normalized query, create it using {@link QueryCache#key(Object...)}
+	 * its first part is used as request kind in metrics.
+	 * @param call to load result from elastic asynchronously
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> CompletableFuture<T> executeAsync(String index, String query,
+			Supplier<CompletableFuture<T>> call) {
+		String key = index + "/" + query;
+		CompletableFuture<Object> future = new CompletableFuture<>();
+		CompletableFuture<Object> running = inFlight.putIfAbsent(key, future);
+		if (!IUtils.isNull(running)) {
+			saved(query);
+			return (CompletableFuture<T>) running.thenApply(Function.identity());
+		}
+		CompletableFuture<T> res = null;
+		try {
+			res = call.get();
+		} catch (RuntimeException | Error th) {
+			inFlight.remove(key, future);
+			future.completeExceptionally(th);
+			throw th;
+		}
+		res.whenComplete((val, th) -> {
+			inFlight.remove(key, future);
+			if (IUtils.isNull(th)) {
+				future.complete(val);
+			} else {
+				future.completeExceptionally(th);
+			}
+		});
+		return (CompletableFuture<T>) future.thenApply(Function.identity());
+	}
+
+	/**
+	 * Method to count a call saved by joining the one in flight.
+	 * @param query
+	 */
+	private void saved(String query) {
+		int indx = query.indexOf('|');
+		registry.counter(NAME + ".saved", KIND,
+				indx > 0 ? query.substring(0, indx) : "other").increment();
+	}
+}
@@ -3,47 +3,72 @@
  */
 package com.synectiks.search.manager;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
 
-import org.apache.commons.lang3.StringUtils;
-import org.codehaus.jettison.json.JSONException;
 import org.codehaus.jettison.json.JSONObject;
 import org.elasticsearch.action.ActionFuture;
-import org.elasticsearch.action.admin.indices.get.GetIndexRequest;
-import org.elasticsearch.action.admin.indices.get.GetIndexResponse;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetItemResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.get.MultiGetResponse;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.search.MultiSearchRequestBuilder;
+import org.elasticsearch.action.search.MultiSearchResponse;
+import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
-import org.elasticsearch.action.support.WriteRequest;
-import org.elasticsearch.action.update.UpdateResponse;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.common.xcontent.XContentType;
-import org.elasticsearch.index.query.IdsQueryBuilder;
+import org.elasticsearch.index.IndexNotFoundException;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.index.query.WrapperQueryBuilder;
+import org.elasticsearch.index.reindex.AbstractBulkByScrollRequest;
+import org.elasticsearch.index.reindex.BulkByScrollResponse;
+import org.elasticsearch.index.reindex.DeleteByQueryAction;
+import org.elasticsearch.index.reindex.DeleteByQueryRequestBuilder;
+import org.elasticsearch.index.reindex.UpdateByQueryAction;
+import org.elasticsearch.index.reindex.UpdateByQueryRequestBuilder;
+import org.elasticsearch.script.Script;
+import org.elasticsearch.script.ScriptType;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.aggregations.Aggregation;
 import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.aggregations.bucket.histogram.Histogram;
 import org.elasticsearch.search.aggregations.bucket.histogram.InternalHistogram;
 import org.elasticsearch.search.aggregations.bucket.histogram.InternalHistogram.Bucket;
 import org.elasticsearch.search.aggregations.bucket.range.Range;
 import org.elasticsearch.search.aggregations.bucket.terms.Terms;
 import org.elasticsearch.search.aggregations.metrics.InternalNumericMetricsAggregation.SingleValue;
+import org.elasticsearch.search.fetch.subphase.FetchSourceContext;
+import org.elasticsearch.search.sort.FieldSortBuilder;
+import org.elasticsearch.search.sort.SortOrder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.elasticsearch.annotations.Document;
 import org.springframework.data.elasticsearch.core.ElasticsearchTemplate;
 import org.springframework.data.elasticsearch.core.ResultsExtractor;
 import org.springframework.data.elasticsearch.core.ScrolledPage;
@@ -53,14 +78,22 @@ import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilde
 import org.springframework.data.elasticsearch.core.query.SearchQuery;
 import org.springframework.stereotype.Component;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.synectiks.commons.constants.IConsts;
-import com.synectiks.commons.interfaces.IESEntity;
 import com.synectiks.commons.utils.IUtils;
+import com.synectiks.search.manager.BulkManager.BulkSession;
+import com.synectiks.search.queries.AggregationResult;
 import com.synectiks.search.queries.Aggregator;
 import com.synectiks.search.queries.ESExpression.FiltersQueryBuilder;
-import com.synectiks.search.queries.ESExpression.StringQueryBuilder;
-import com.synectiks.search.utils.ClassFinder;
+import com.synectiks.search.queries.FieldsProjection;
+import com.synectiks.search.queries.MultiSearchItem;
+import com.synectiks.search.utils.EntityCatalogGenerator;
+import com.synectiks.search.utils.EntityMetadata;
 import com.synectiks.search.utils.IESUtils;
+import com.synectiks.search.utils.RawJson;
 
 /**
  * @author Rajesh
@@ -71,9 +104,41 @@ public class SearchManager {
 	private static final Logger logger = LoggerFactory.getLogger(SearchManager.class);
 	private static final String ENTITY_PKG = "com.synectiks.cms.entities";
 	private static final int SCROLL_SIZE = 5000;
+	private static final int MGET_CHUNK_SIZE = 500;
+	private static final String ID = "id";
+	private static final String FOUND = "found";
+	private static final String SOURCE = "source";
+	private static final String ERROR = "error";
+	// Script to set update value, dot separated update key is resolved
+	// into nested objects. Documents are selected by exact key query.
+	static final String UPDATE_SCRIPT = "def node = ctx._source; "
+			+ "String[] parts = params.updateKey.splitOnToken('.'); "
+			+ "for (int i = 0; i < parts.length - 1; i++) { "
+			+ "if (!(node[parts[i]] instanceof Map)) { node[parts[i]] = new HashMap(); } "
+			+ "node = node[parts[i]]; } "
+			+ "node[parts[parts.length - 1]] = params.updateValue;";
 
 	@Autowired
 	private ElasticsearchTemplate esTemplate;
+	@Autowired
+	private IndexCatalog indexCatalog;
+	@Autowired
+	private FieldCatalog fieldCatalog;
+	@Autowired
+	private EntityCatalog entityCatalog;
+	@Autowired
+	private QueryCache queryCache;
+	@Autowired
+	private CompiledQueries compiledQueries;
+	@Autowired
+	private RequestCoalescer coalescer;
+	@Autowired
+	private HistogramCache histogramCache;
+	@Autowired
+	private BulkManager bulkManager;
+	@Autowired
+	@Qualifier("blockingSearchExecutor")
+	private Executor executor;
 
 	public ElasticsearchTemplate getESTemplate() {
 		return esTemplate;
@@ -86,53 +151,45 @@ public class SearchManager {
 	 */
 	@SuppressWarnings("rawtypes")
 	public Map gettMapping(String cls) {
-		Class<?> clazz = IUtils.getClass(cls);
-		if (esTemplate.indexExists(clazz)) {
+		EntityMetadata meta = EntityMetadata.of(cls);
+		if (indexCatalog.exists(meta.getIndexName())) {
 			logger.info("Elastic Index exists");
-			return esTemplate.getMapping(clazz);
+			return esTemplate.getMapping(meta.getClazz());
 		} else {
 			logger.info("Creating model mapping");
-			return getAllFieldsMapping(clazz);
+			return getAllFieldsMapping(meta);
+		}
+	}
+
+	/**
+	 * Method to get cached fields catalog of entity index.
+	 * @param cls
+	 * @return {@code Fields} or null if entity index not exists.
+	 */
+	public FieldCatalog.Fields getFieldCatalog(String cls) {
+		EntityMetadata meta = EntityMetadata.of(cls);
+		if (indexCatalog.exists(meta.getIndexName())) {
+			return fieldCatalog.get(meta);
 		}
+		return null;
 	}
 
 	/**
 	 * Method to get all class fields list from a class including super class
 	 * fields.
-	 * @param clazz
+	 * @param meta
 	 * @return
 	 */
-	private Map<String, Object> getAllFieldsMapping(Class<?> clazz) {
-		List<Field> list = getAllFields(clazz);
+	private Map<String, Object> getAllFieldsMapping(EntityMetadata meta) {
 		Map<String, Object> pMap = new HashMap<>();
 		List<Map<String, Object>> props = new ArrayList<>();
-		for (Field fld : list) {
-			props.add(addField(fld.getName(), fld.getType()));
+		for (Map.Entry<String, Class<?>> fld : meta.getFieldTypes().entrySet()) {
+			props.add(addField(fld.getKey(), fld.getValue()));
 		}
 		pMap.put("properties", props);
 		return pMap;
 	}
 
-	/**
-	 * Method to get list of fields from class using reflection.
-	 * @param clazz
-	 * @return
-	 */
-	private List<Field> getAllFields(Class<?> clazz) {
-		if (clazz == null) {
-			return Collections.emptyList();
-		}
-		List<Field> result = new ArrayList<>(getAllFields(clazz.getSuperclass()));
-		List<Field> filteredFields = Arrays.stream(clazz.getDeclaredFields())
-				.filter(f -> (Modifier.isPublic(f.getModifiers())
-						|| Modifier.isProtected(f.getModifiers())
-						|| Modifier.isPrivate(f.getModifiers()))
-						&& !Modifier.isStatic(f.getModifiers()))
-				.collect(Collectors.toList());
-		result.addAll(filteredFields);
-		return result;
-	}
-
 	/**
 	 * Method to add a field details into string.
 	 * @param name
@@ -162,33 +219,29 @@ public class SearchManager {
 	public List<String> listIndicies(boolean fromElastic, String pkg, boolean json) {
 		List<String> lst = null;
 		if (fromElastic) {
-			try {
-				GetIndexResponse indexes = esTemplate.getClient().admin().indices()
-						.getIndex(new GetIndexRequest()).get();
-				// logger.info("Aliases: " + indexes.aliases());
-				return Arrays.asList(indexes.getIndices());
-			} catch (Exception e) {
-				e.printStackTrace();
-			}
+			return indexCatalog.getIndexNames();
 		} else {
 			if (IUtils.isNullOrEmpty(pkg)) {
 				pkg = ENTITY_PKG;
 			}
-			List<Class<?>> classes = ClassFinder.find(pkg, IESEntity.class);
 			lst = new ArrayList<>();
-			for (Class<?> cls : classes) {
+			for (Map<String, String> entity : entityCatalog.getEntities(pkg)) {
+				String cls = entity.get(EntityCatalogGenerator.CLS);
 				StringBuilder sb = new StringBuilder();
 				if (json) {
-					sb.append("{ \"" + cls.getSimpleName() + "\": {");
-					if (cls.isAnnotationPresent(Document.class)) {
-						Document doc = cls.getAnnotation(Document.class);
-						sb.append("\"cls\": \"" + cls.getName() + "\",");
-						sb.append("\"indexName\": \"" + doc.indexName() + "\",");
-						sb.append("\"indexType\": \"" + doc.type() + "\"");
+					String name = cls.substring(Math.max(
+							cls.lastIndexOf('.'), cls.lastIndexOf('$')) + 1);
+					sb.append("{ \"" + name + "\": {");
+					if (!IUtils.isNull(entity.get(EntityCatalogGenerator.INDEX_NAME))) {
+						sb.append("\"cls\": \"" + cls + "\",");
+						sb.append("\"indexName\": \""
+								+ entity.get(EntityCatalogGenerator.INDEX_NAME) + "\",");
+						sb.append("\"indexType\": \""
+								+ entity.get(EntityCatalogGenerator.INDEX_TYPE) + "\"");
 					}
 					sb.append("} }");
 				} else {
-					sb.append(cls.getName());
+					sb.append(cls);
 				}
 				lst.add(sb.toString());
 			}
@@ -200,21 +253,143 @@ public class SearchManager {
 	 * Method to return documents by elastic-search document ids.
 	 * @param cls
 	 * @param ids
-	 * @return
+	 * @return source json of found documents in requested ids order
 	 */
 	public List<String> getDocsById(String cls, List<String> ids) {
-		String type = esTemplate.getPersistentEntityFor(IUtils.getClass(cls))
-				.getIndexType();
-		IdsQueryBuilder sQry = QueryBuilders.idsQuery(type)
-				.addIds(IUtils.isNull(ids) ? null : ids.toArray(new String[ids.size()]));
-		NativeSearchQuery nsqb = new NativeSearchQueryBuilder()
-				.withQuery(sQry).withIndices(esTemplate
-						.getPersistentEntityFor(IUtils.getClass(cls)).getIndexName())
-				.build();
-		List<String> res = esTemplate.query(nsqb, new SearchResultExtractor());
+		List<String> res = new ArrayList<>();
+		for (Map<String, Object> doc : multiGet(cls, ids, null, null)) {
+			if (Boolean.TRUE.equals(doc.get(FOUND))) {
+				res.add(new JSONObject((Map<?, ?>) doc.get(SOURCE)).toString());
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Method to return documents by ids as raw json source values,
+	 * which are written into response as json objects without parsing.
+	 * @param cls
+	 * @param ids
+	 * @return source of found documents in requested ids order
+	 */
+	public List<RawJson> getRawDocsById(String cls, List<String> ids) {
+		List<RawJson> res = new ArrayList<>();
+		for (MultiGetItemResponse item : multiGetItems(cls, ids, null, null)) {
+			if (!item.isFailed() && item.getResponse().isExists()
+					&& !item.getResponse().isSourceEmpty()) {
+				res.add(new RawJson(item.getResponse().getSourceAsBytesRef()));
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Method to get documents by ids using elastic multi get. Ids are split
+	 * into chunks and all chunk requests are sent concurrently.
+	 * @param cls entity class name
+	 * @param ids documents ids
+	 * @param includes source fields to include, null for all fields
+	 * @param excludes source fields to exclude
+	 * @return list of document maps with id, found and source
+	 * or error keys, in requested ids order
+	 */
+	public List<Map<String, Object>> multiGet(String cls, List<String> ids,
+			String[] includes, String[] excludes) {
+		List<Map<String, Object>> res = new ArrayList<>();
+		for (MultiGetItemResponse item : multiGetItems(cls, ids, includes, excludes)) {
+			Map<String, Object> doc = new LinkedHashMap<>();
+			doc.put(ID, item.getId());
+			if (item.isFailed()) {
+				doc.put(FOUND, false);
+				doc.put(ERROR, item.getFailure().getMessage());
+			} else {
+				GetResponse gRes = item.getResponse();
+				doc.put(FOUND, gRes.isExists());
+				if (gRes.isExists()) {
+					doc.put(SOURCE, gRes.getSourceAsMap());
+				}
+			}
+			res.add(doc);
+		}
 		return res;
 	}
 
+	/**
+	 * Method to send chunked multi get requests concurrently. A failed
+	 * chunk request fails only the items of that chunk.
+	 * @param cls
+	 * @param ids
+	 * @param includes
+	 * @param excludes
+	 * @return multi get items in requested ids order
+	 */
+	private List<MultiGetItemResponse> multiGetItems(String cls, List<String> ids,
+			String[] includes, String[] excludes) {
+		List<MultiGetItemResponse> res = new ArrayList<>();
+		// Fire all chunks first, then collect responses in order
+		List<MultiGetRequest> reqs = createMultiGetRequests(cls, ids, includes, excludes);
+		List<ActionFuture<MultiGetResponse>> futures = new ArrayList<>();
+		for (MultiGetRequest req : reqs) {
+			futures.add(esTemplate.getClient().multiGet(req));
+		}
+		for (int i = 0; i < reqs.size(); i++) {
+			try {
+				res.addAll(Arrays.asList(futures.get(i).actionGet().getResponses()));
+			} catch (Exception ex) {
+				logger.error("Multi get chunk failed: " + ex.getMessage());
+				res.addAll(getFailedItems(reqs.get(i), ex));
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Method to create failed item responses for all items of request.
+	 * @param req
+	 * @param ex
+	 * @return
+	 */
+	static List<MultiGetItemResponse> getFailedItems(MultiGetRequest req, Exception ex) {
+		List<MultiGetItemResponse> res = new ArrayList<>();
+		for (MultiGetRequest.Item item : req.getItems()) {
+			res.add(new MultiGetItemResponse(null, new MultiGetResponse.Failure(
+					item.index(), item.type(), item.id(), ex)));
+		}
+		return res;
+	}
+
+	/**
+	 * Method to split ids into chunks of multi get requests.
+	 * @param cls entity class name
+	 * @param ids documents ids
+	 * @param includes source fields to include, null for all fields
+	 * @param excludes source fields to exclude
+	 * @return multi get requests in ids order
+	 */
+	List<MultiGetRequest> createMultiGetRequests(String cls, List<String> ids,
+			String[] includes, String[] excludes) {
+		List<MultiGetRequest> reqs = new ArrayList<>();
+		if (IUtils.isNull(ids) || ids.isEmpty()) {
+			return reqs;
+		}
+		EntityMetadata entity = EntityMetadata.of(cls);
+		String index = entity.getIndexName();
+		String type = entity.getIndexType();
+		FetchSourceContext fetchCtx = (IUtils.isNull(includes) && IUtils.isNull(excludes))
+				? FetchSourceContext.FETCH_SOURCE
+				: new FetchSourceContext(true, includes, excludes);
+		for (int from = 0; from < ids.size(); from += MGET_CHUNK_SIZE) {
+			MultiGetRequest req = new MultiGetRequest();
+			for (String id : ids.subList(from, Math.min(ids.size(), from + MGET_CHUNK_SIZE))) {
+				req.add(new MultiGetRequest.Item(index, type, id)
+						.fetchSourceContext(fetchCtx));
+			}
+			reqs.add(req);
+		}
+		return reqs;
+	}
+
+
 	/**
 	 * Method to add an index with mappings or update the existing index
 	 * mapping.
@@ -225,13 +400,19 @@ public class SearchManager {
 	 */
 	public boolean putMapping(String cls, String mappings, boolean isUpdate) {
 		boolean created = false;
-		Class<?> clazz = IUtils.getClass(cls);
-		if (!esTemplate.indexExists(clazz)) {
+		EntityMetadata meta = EntityMetadata.of(cls);
+		Class<?> clazz = meta.getClazz();
+		if (!indexCatalog.exists(meta.getIndexName())) {
 			created = esTemplate.createIndex(clazz);
+			if (created) {
+				indexCatalog.indexCreated(meta.getIndexName());
+			}
 		}
 		// add mapping only it newly created index or we have to update it.
 		if (created || isUpdate) {
-			return esTemplate.putMapping(clazz, mappings);
+			boolean updated = esTemplate.putMapping(clazz, mappings);
+			fieldCatalog.invalidate(meta.getIndexName());
+			return updated;
 		}
 		return false;
 	}
@@ -245,7 +426,12 @@ public class SearchManager {
 	public boolean createIndex(String indexName) {
 		boolean created = false;
 		if (!esTemplate.indexExists(indexName)) {
+			// catalog could be stale if index was deleted outside
+			indexCatalog.indexDeleted(indexName);
 			created = esTemplate.createIndex(indexName);
+			if (created) {
+				indexCatalog.indexCreated(indexName);
+			}
 		}
 		return created;
 	}
@@ -261,13 +447,55 @@ public class SearchManager {
 	 * @return list of entity objects which match query criteria
 	 */
 	public List<?> search(String q, String cls, String fields, int page, int size) {
-		SearchQuery sQry = new StringQueryBuilder(q).withClass(cls).withFields(fields)
-				.withPageNo(page).withPageSize(size).build();
+		return search(q, cls, fields, page, size, false);
+	}
+
+	/**
+	 * Method to search for <b>q</b> string in the <b>cls</b> class's
+	 * <b>fields</b>
+	 * @param q search string
+	 * @param cls fully qualified name of entity class
+	 * @param fields comma separated list of field name of entity class
+	 * @param page
+	 * @param size
+	 * @param raw set true to get documents source as raw json values
+	 * if class is not specified.
+	 * @return list of entity objects which match query criteria
+	 */
+	public List<?> search(String q, String cls, String fields, int page, int size,
+			boolean raw) {
+		return search(q, cls, fields, page, size, raw, null);
+	}
+
+	/**
+	 * Method to search for <b>q</b> string in the <b>cls</b> class's
+	 * <b>fields</b>
+	 * @param q search string
+	 * @param cls fully qualified name of entity class
+	 * @param fields comma separated list of field name of entity class
+	 * @param page
+	 * @param size
+	 * @param raw set true to get documents source as raw json values
+	 * if class is not specified.
+	 * @param proj fields to fetch, null for whole documents
+	 * @return list of entity objects which match query criteria
+	 */
+	public List<?> search(String q, String cls, String fields, int page, int size,
+			boolean raw, FieldsProjection proj) {
+		SearchQuery sQry = compiledQueries.string(q, fields, cls, page, size);
 		// Search the query string
 		List<?> lst = null;
-		if (!IUtils.isNull(cls)) {
-			lst = executeQuery(sQry, IUtils.getClass(cls), page, size);
+		if (!IUtils.isNull(cls) || (!IUtils.isNull(proj) && proj.hasDocValueFields())) {
+			lst = executeQuery(sQry, EntityMetadata.classOf(cls), page, size, proj);
+		} else if (raw) {
+			if (!IUtils.isNull(proj)) {
+				proj.applyTo(sQry);
+			}
+			lst = esTemplate.query(sQry, new RawSearchResultExtractor());
 		} else {
+			if (!IUtils.isNull(proj)) {
+				proj.applyTo(sQry);
+			}
 			lst = esTemplate.query(sQry, new SearchResultExtractor());
 		}
 		return lst;
@@ -283,6 +511,20 @@ public class SearchManager {
 	 */
 	public SearchResponse elsSearch(String elsQuery, String cls, int pageNo,
 			int pageSize) {
+		return elsSearch(elsQuery, cls, pageNo, pageSize, null);
+	}
+
+	/**
+	 * Method to execute elastic search query string in json format.
+	 * @param elsQuery
+	 * @param cls
+	 * @param pageNo
+	 * @param pageSize
+	 * @param proj fields to fetch, null for whole source
+	 * @return
+	 */
+	public SearchResponse elsSearch(String elsQuery, String cls, int pageNo,
+			int pageSize, FieldsProjection proj) {
 		// return esTemplate.getClient().prepareSearch(
 		// esTemplate.getPersistentEntityFor(IUtils.getClass(cls)).getIndexName())
 		// .setQuery(QueryBuilders.wrapperQuery(elsQuery))
@@ -292,15 +534,13 @@ public class SearchManager {
 		// .actionGet();
 
 		// Following code run only elastic below 5.0
-		PageRequest pageReq = IESUtils.getPageRequest(pageNo, pageSize);
-		// Finally create a bool query builder with query type
-		elsQuery = IESUtils.getElsQuery(elsQuery);
-		WrapperQueryBuilder wqb = QueryBuilders.wrapperQuery(elsQuery);
-		NativeSearchQuery nsqb = new NativeSearchQueryBuilder()
-				// .withTypes(cls)
-				.withIndices(esTemplate.getPersistentEntityFor(IUtils.getClass(cls))
-						.getIndexName())
-				.withQuery(wqb).withPageable(pageReq).build();
+		NativeSearchQuery nsqb = buildElsQuery(elsQuery, cls, pageNo, pageSize);
+		if (!IUtils.isNull(proj)) {
+			SearchRequestBuilder builder = IESUtils.prepareSearch(
+					esTemplate.getClient(), nsqb);
+			proj.applyTo(builder);
+			return builder.execute().actionGet();
+		}
 		return esTemplate.query(nsqb, new ResultsExtractor<SearchResponse>() {
 			@Override
 			public SearchResponse extract(SearchResponse response) {
@@ -309,6 +549,26 @@ public class SearchManager {
 		});
 	}
 
+	/**
+	 * Method to create query for elastic search query string in json format.
+	 * @param elsQuery
+	 * @param cls
+	 * @param pageNo
+	 * @param pageSize
+	 * @return
+	 */
+	NativeSearchQuery buildElsQuery(String elsQuery, String cls, int pageNo,
+			int pageSize) {
+		PageRequest pageReq = IESUtils.getPageRequest(pageNo, pageSize);
+		// Finally create a bool query builder with query type
+		WrapperQueryBuilder wqb = QueryBuilders.wrapperQuery(
+				IESUtils.getElsQuery(elsQuery));
+		return new NativeSearchQueryBuilder()
+				// .withTypes(cls)
+				.withIndices(EntityMetadata.of(cls).getIndexName())
+				.withQuery(wqb).withPageable(pageReq).build();
+	}
+
 	/**
 	 * Method to get the list of entities match the specified query filters
 	 * @param json filters
@@ -318,12 +578,53 @@ public class SearchManager {
 	 * @return List of Entity class instances.
 	 */
 	public List<?> search(String json, String cls, int page, int size) {
+		return search(json, cls, page, size, null);
+	}
+
+	/**
+	 * Method to get the list of entities match the specified query filters
+	 * @param json filters
+	 * @param cls Entity class
+	 * @param page
+	 * @param size
+	 * @param proj fields to fetch, null for whole entities
+	 * @return List of Entity class instances, or partial documents maps
+	 * if doc value fields are requested.
+	 */
+	public List<?> search(String json, String cls, int page, int size,
+			FieldsProjection proj) {
+		return search(json, cls, page, size, proj, false);
+	}
+
+	/**
+	 * Method to get the list of entities match the specified query filters
+	 * @param json filters
+	 * @param cls Entity class
+	 * @param page
+	 * @param size
+	 * @param proj fields to fetch, null for whole entities
+	 * @param noCache set true to bypass query cache, deep paging
+	 * results are never cached.
+	 * @return List of Entity class instances, or partial documents maps
+	 * if doc value fields are requested.
+	 */
+	public List<?> search(String json, String cls, int page, int size,
+			FieldsProjection proj, boolean noCache) {
 
 		logger.info("Cls: " + cls + ", json: " + json);
-		SearchQuery sQry = FiltersQueryBuilder.create(cls, json, page, size).build();
-		// Search the query string
-		List<?> lst = executeQuery(sQry, IUtils.getClass(cls), page, size);
-		return lst;
+		Class<?> clazz = EntityMetadata.classOf(cls);
+		Supplier<List<?>> loader = () -> {
+			SearchQuery sQry = compiledQueries.filters(cls, json, page, size, null);
+			// Search the query string
+			return executeQuery(sQry, clazz, page, size, proj);
+		};
+		if (IESUtils.isScrollQuery(page, size)) {
+			return loader.get();
+		}
+		String index = IESUtils.getIndexName(clazz);
+		String key = QueryCache.key("list", cls, json, page, size,
+				IUtils.isNull(proj) ? null : proj.toString());
+		return cached(index, key, loader, noCache);
 	}
 
 	/**
@@ -333,12 +634,49 @@ public class SearchManager {
 	 * @return count of Entity class instances.
 	 */
 	public long count(String json, String cls) {
+		return count(json, cls, false);
+	}
+
+	/**
+	 * Method to get the count of entities match the specified query filters
+	 * @param json string filters
+	 * @param cls Entity class
+	 * @param noCache set true to bypass query cache
+	 * @return count of Entity class instances.
+	 */
+	public long count(String json, String cls, boolean noCache) {
 
 		logger.info("Cls: " + cls + ", json: " + json);
-		SearchQuery sQry = FiltersQueryBuilder.create(cls, json, 0, 0).build();
-		// Search the query string
-		long lst = esTemplate.count(sQry, IUtils.getClass(cls));
-		return lst;
+		Class<?> clazz = EntityMetadata.classOf(cls);
+		Supplier<Long> loader = () -> {
+			SearchQuery sQry = compiledQueries.filters(cls, json, 0, 0, null);
+			// Search the query string
+			return esTemplate.count(sQry, clazz);
+		};
+		String index = IESUtils.getIndexName(clazz);
+		return cached(index, QueryCache.key("count", cls, json), loader, noCache);
+	}
+
+	/**
+	 * Method to count entities match the specified query filters until
+	 * {@code atLeast} entities are found, instead of exact total.
+	 * @param json string filters
+	 * @param cls Entity class
+	 * @param atLeast number of entities to count, 1 to check existence
+	 * @param noCache set true to bypass query cache
+	 * @return map with count and truncated flag, see
+	 * {@link IESUtils#getCountAtLeast(SearchResponse, int)}
+	 */
+	public Map<String, Object> countAtLeast(String json, String cls, int atLeast,
+			boolean noCache) {
+		logger.info("Cls: " + cls + ", json: " + json + ", atLeast: " + atLeast);
+		Supplier<Map<String, Object>> loader = () -> {
+			SearchQuery sQry = compiledQueries.filters(cls, json, 0, 0, null);
+			return IESUtils.getCountAtLeast(IESUtils.prepareCountAtLeast(
+					esTemplate.getClient(), sQry, atLeast).get(), atLeast);
+		};
+		String index = IESUtils.getIndexName(EntityMetadata.classOf(cls));
+		return cached(index, QueryCache.key("count", cls, json, atLeast), loader, noCache);
 	}
 
 	/**
@@ -349,14 +687,192 @@ public class SearchManager {
 	 * @return count of Entity class instances.
 	 */
 	public Map<String, Object> aggreCounts(String json, String cls, Aggregator aggre) {
+		return aggreCounts(json, cls, aggre, false);
+	}
+
+	/**
+	 * Method to get the count of entities match the specified query filters
+	 * @param json filters
+	 * @param cls Entity class
+	 * @param aggre Aggregator object
+	 * @param noCache set true to bypass query cache
+	 * @return count of Entity class instances.
+	 */
+	public Map<String, Object> aggreCounts(String json, String cls,
+			Aggregator aggre, boolean noCache) {
 
 		logger.info("Cls: " + cls + ", filterJson: " + json + ", aggre: " + aggre);
-		SearchQuery sQry = FiltersQueryBuilder.create(cls, json, 0, 0)
-				.withAggregator(aggre).build();
-		// Search the query string with aggregation result extractor
-		Map<String, Object> lst = esTemplate.query(sQry,
-				new AggregationResultExtractor(aggre));
-		return lst;
+		Supplier<Map<String, Object>> loader = () -> {
+			SearchQuery sQry = compiledQueries.filters(cls, json, 0, 0, aggre);
+			// Search the query string with aggregation result extractor
+			return esTemplate.query(sQry, new AggregationResultExtractor(aggre));
+		};
+		String aggreJson = null;
+		try {
+			aggreJson = IUtils.OBJECT_MAPPER.writeValueAsString(aggre);
+		} catch (JsonProcessingException e) {
+			logger.warn("Aggregator is not cacheable: " + e.getMessage());
+		}
+		if (IUtils.isNull(aggreJson)) {
+			return loader.get();
+		}
+		String index = IESUtils.getIndexName(EntityMetadata.classOf(cls));
+		String key = QueryCache.key("aggre", cls, json, aggreJson);
+		if (!noCache && aggre.isDateHistogram()) {
+			return histogramCache.get(index, key, aggre, from -> coalescer.execute(
+					index, key + "|" + from, () -> searchHistogram(cls, json, aggre, from)));
+		}
+		return cached(index, key, loader, noCache);
+	}
+
+	/**
+	 * Method to search date histogram of documents match the filters.
+	 * @param cls
+	 * @param json filters
+	 * @param aggre date histogram aggregator
+	 * @param from millis to search documents dated on or after, null for all
+	 * @return histogram or null if not found in response
+	 */
+	private Histogram searchHistogram(String cls, String json, Aggregator aggre,
+			Long from) {
+		SearchQuery sQry = compiledQueries.filters(cls, json, 0, 0, aggre);
+		SearchRequestBuilder builder = IESUtils.prepareSearch(
+				esTemplate.getClient(), sQry).setSize(0);
+		if (!IUtils.isNull(from)) {
+			// compiled query is shared, so wrap it to add the date range
+			builder.setQuery(QueryBuilders.boolQuery().must(sQry.getQuery())
+					.filter(QueryBuilders.rangeQuery(aggre.getFieldName())
+							.gte(from).format("epoch_millis")));
+		}
+		Aggregations aggres = builder.get().getAggregations();
+		return IUtils.isNull(aggres) ? null : aggres.get(aggre.getAggreKey());
+	}
+
+	/**
+	 * Method to load result through query cache, identical concurrent
+	 * loads are coalesced into one elastic call.
+	 * @param index
+	 * @param key normalized query key
+	 * @param loader
+	 * @param noCache set true to bypass query cache and coalescing,
+	 * so result is always loaded by a new elastic call
+	 * @return
+	 */
+	private <T> T cached(String index, String key, Supplier<T> loader,
+			boolean noCache) {
+		if (noCache) {
+			return loader.get();
+		}
+		return queryCache.get(index, key, loader);
+	}
+
+	/**
+	 * Method to execute filters queries of items in one elastic multi
+	 * search request. Deep paging list items which need scrolling are
+	 * executed in parallel on blocking search executor while multi search runs.
+	 * Items are always searched in elastic, query cache and request
+	 * coalescing are not used.
+	 * @param items
+	 * @return list of {@code result} or {@code error} objects in items order
+	 */
+	public List<Map<String, Object>> multiSearch(List<MultiSearchItem> items) {
+		List<Map<String, Object>> res = new ArrayList<>();
+		if (IUtils.isNull(items) || items.isEmpty()) {
+			return res;
+		}
+		MultiSearchRequestBuilder builder = esTemplate.getClient().prepareMultiSearch();
+		// index of item's request in multi search, -1 if not sent
+		int[] slots = new int[items.size()];
+		SearchQuery[] queries = new SearchQuery[items.size()];
+		FieldsProjection[] projs = new FieldsProjection[items.size()];
+		Map<Integer, CompletableFuture<List<?>>> scrolls = new LinkedHashMap<>();
+		int sent = 0;
+		for (int i = 0; i < items.size(); i++) {
+			MultiSearchItem item = items.get(i);
+			slots[i] = -1;
+			res.add(null);
+			try {
+				if (item.isCount() || item.isAggregation()) {
+					queries[i] = compiledQueries.filters(item.getCls(),
+							item.getFilters(), 0, 0, item.getAggregator());
+					builder.add(IESUtils.prepareSearch(esTemplate.getClient(),
+							queries[i]).setSize(0));
+				} else if (IESUtils.isScrollQuery(item.getPageNo(), item.getPageSize())) {
+					FieldsProjection proj = item.getProjection();
+					scrolls.put(i, CompletableFuture.supplyAsync(() -> search(
+							item.getFilters(), item.getCls(), item.getPageNo(),
+							item.getPageSize(), proj, true), executor));
+					continue;
+				} else {
+					queries[i] = compiledQueries.filters(item.getCls(),
+							item.getFilters(), item.getPageNo(), item.getPageSize(), null);
+					SearchRequestBuilder req = IESUtils.prepareSearch(
+							esTemplate.getClient(), queries[i]);
+					projs[i] = item.getProjection();
+					if (!IUtils.isNull(projs[i])) {
+						projs[i].applyTo(req);
+					}
+					builder.add(req);
+				}
+				slots[i] = sent++;
+			} catch (Exception ex) {
+				logger.error("Failed item " + i + ": " + item + ", " + ex.getMessage());
+				res.set(i, msearchError(ex));
+			}
+		}
+		logger.info("Multi search of " + sent + " of " + items.size() + " items, "
+				+ scrolls.size() + " scroll items");
+		MultiSearchResponse.Item[] responses = sent == 0 ? null
+				: builder.get().getResponses();
+		for (int i = 0; i < items.size() && sent > 0; i++) {
+			if (slots[i] < 0) {
+				continue;
+			}
+			MultiSearchResponse.Item resp = responses[slots[i]];
+			MultiSearchItem item = items.get(i);
+			try {
+				if (resp.isFailure()) {
+					res.set(i, msearchError(resp.getFailure()));
+				} else if (item.isAggregation()) {
+					res.set(i, msearchResult(new AggregationResultExtractor(
+							item.getAggregator()).extract(resp.getResponse())));
+				} else if (item.isCount()) {
+					res.set(i, msearchResult(resp.getResponse().getHits().getTotalHits()));
+				} else if (!IUtils.isNull(projs[i]) && projs[i].hasDocValueFields()) {
+					List<Map<String, Object>> docs = new ArrayList<>();
+					for (SearchHit hit : resp.getResponse().getHits()) {
+						docs.add(projs[i].toDocument(hit));
+					}
+					res.set(i, msearchResult(docs));
+				} else {
+					res.set(i, msearchResult(esTemplate.getResultsMapper().mapResults(
+							resp.getResponse(), EntityMetadata.classOf(item.getCls()),
+							queries[i].getPageable()).getContent()));
+				}
+			} catch (Exception ex) {
+				logger.error("Failed item " + i + ": " + item + ", " + ex.getMessage());
+				res.set(i, msearchError(ex));
+			}
+		}
+		for (Map.Entry<Integer, CompletableFuture<List<?>>> entry : scrolls.entrySet()) {
+			try {
+				res.set(entry.getKey(), msearchResult(entry.getValue().join()));
+			} catch (CompletionException ce) {
+				Throwable cause = IUtils.isNull(ce.getCause()) ? ce : ce.getCause();
+				logger.error("Failed item " + entry.getKey() + ": " + cause.getMessage());
+				res.set(entry.getKey(), msearchError(cause instanceof Exception ?
+						(Exception) cause : new Exception(cause)));
+			}
+		}
+		return res;
+	}
+
+	private static Map<String, Object> msearchResult(Object result) {
+		return Collections.singletonMap("result", result);
+	}
+
+	private static Map<String, Object> msearchError(Exception ex) {
+		return Collections.singletonMap("error", IUtils.getFailedResponse(ex));
 	}
 
 	/**
@@ -367,9 +883,27 @@ public class SearchManager {
 	 * @param size
 	 * @return
 	 */
-	private List<?> executeQuery(SearchQuery sQry, Class<?> cls, int page, int size) {
+	private List<?> executeQuery(SearchQuery sQry, Class<?> cls, int page, int size,
+			FieldsProjection proj) {
 		logger.info("Query: " + sQry.getQuery());
 		logger.info("Filters: " + sQry.getFilter());
+		if (!IUtils.isNull(proj) && proj.hasDocValueFields()) {
+			// Partial documents are created from hits, no entity mapping
+			SearchRequestBuilder builder = IESUtils.prepareSearch(
+					esTemplate.getClient(), sQry);
+			proj.applyTo(builder);
+			if (IESUtils.isScrollQuery(page, size)) {
+				return getScrollDocuments(builder, proj, page, size);
+			}
+			List<Map<String, Object>> lst = new ArrayList<>();
+			for (SearchHit hit : builder.execute().actionGet().getHits()) {
+				lst.add(proj.toDocument(hit));
+			}
+			return lst;
+		}
+		if (!IUtils.isNull(proj)) {
+			proj.applyTo(sQry);
+		}
 		if (!IUtils.isNull(cls)) {
 			if (IESUtils.isScrollQuery(page, size)) {
 				return getScrollResults(sQry, cls, page, size);
@@ -381,53 +915,103 @@ public class SearchManager {
 	}
 
 	/**
-	 * Method to collect scroll results
+	 * Method to collect scroll results. Batches before the requested
+	 * page are discarded and scrolling stops once page is filled,
+	 * so only the requested window is kept in memory.
 	 * @param sQry
 	 * @param cls
-	 * @param page
-	 * @param size
+	 * @param page 1 - based page number, less than 1 for all results
+	 * @param size page size, -1 for all results
 	 * @return
 	 */
-	private List<?> getScrollResults(SearchQuery sQry, Class<?> cls, int page, int size) {
+	List<?> getScrollResults(SearchQuery sQry, Class<?> cls, int page, int size) {
 
 		List<Object> lst = null;
 		if (!IUtils.isNull(cls) && !IUtils.isNull(sQry)) {
-			List<Object> pages = new ArrayList<>();
-			Page<?> scroll = esTemplate.startScroll(IConsts.ES_SCROLL_TIMEOUT, sQry, cls);
-			String scrollId = ((ScrolledPage<?>) scroll).getScrollId();
-			while (true) {
-				Page<?> pg = esTemplate.continueScroll(scrollId,
-						IConsts.ES_SCROLL_TIMEOUT, cls);
-				if (pg.hasContent()) {
-					pages.addAll(pg.getContent());
-				} else {
-					break;
-				}
-			}
+			long from = 0;
+			long to = Long.MAX_VALUE;
 			// Check if user required some specific page
-			if (page > 0) {
-				int to = page * size;
-				int from = (to - size) + 1;
-				lst = new ArrayList<>(size);
-				if (pages.size() > from) {
-					// Set the required page contents in result list
-					for (int cnt = from; cnt < to; cnt++) {
-						lst.add(pages.get(cnt));
+			if (page > 0 && size > 0) {
+				from = (long) (page - 1) * size;
+				to = from + size;
+			}
+			lst = new ArrayList<>(size > 0 ? size : SCROLL_SIZE);
+			// Scroll with bigger batches to skip pages faster
+			sQry.setPageable(PageRequest.of(0, SCROLL_SIZE));
+			ScrolledPage<?> scroll = (ScrolledPage<?>) esTemplate
+					.startScroll(IConsts.ES_SCROLL_TIMEOUT, sQry, cls);
+			String scrollId = scroll.getScrollId();
+			try {
+				long pos = 0;
+				while (scroll.hasContent()) {
+					List<?> content = scroll.getContent();
+					long end = pos + content.size();
+					if (end > from) {
+						int start = (int) Math.max(0, from - pos);
+						int stop = (int) Math.min(content.size(), to - pos);
+						lst.addAll(content.subList(start, stop));
+					}
+					pos = end;
+					if (pos >= to) {
+						break;
 					}
+					scroll = (ScrolledPage<?>) esTemplate.continueScroll(scrollId,
+							IConsts.ES_SCROLL_TIMEOUT, cls);
+					scrollId = scroll.getScrollId();
+				}
+			} finally {
+				if (!IUtils.isNullOrEmpty(scrollId)) {
+					esTemplate.clearScroll(scrollId);
 				}
-			} else {
-				// return whole results list
-				lst = pages;
 			}
 		}
 		return lst;
 	}
 
+	/**
+	 * Method to collect partial documents of scroll results, only the
+	 * requested window is kept in memory as in
+	 * {@link #getScrollResults(SearchQuery, Class, int, int)}
+	 * @param builder search request with query and fields projection
+	 * @param proj
+	 * @param page 1 - based page number, less than 1 for all results
+	 * @param size page size, -1 for all results
+	 * @return
+	 */
+	List<Map<String, Object>> getScrollDocuments(SearchRequestBuilder builder,
+			FieldsProjection proj, int page, int size) {
+		long from = 0;
+		long to = Long.MAX_VALUE;
+		if (page > 0 && size > 0) {
+			from = (long) (page - 1) * size;
+			to = from + size;
+		}
+		long start = from;
+		long end = to;
+		List<Map<String, Object>> lst = new ArrayList<>(size > 0 ? size : SCROLL_SIZE);
+		long[] pos = new long[1];
+		builder.setFrom(0).setSize(SCROLL_SIZE);
+		try {
+			scroll(builder, hits -> {
+				for (SearchHit hit : hits) {
+					if (pos[0] >= start && pos[0] < end) {
+						lst.add(proj.toDocument(hit));
+					}
+					pos[0]++;
+				}
+				return pos[0] < end;
+			});
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return lst;
+	}
+
 	/**
 	 * Elastic search response parser class to create a list of json objects
 	 * @author Rajesh Upadhyay
 	 */
-	private static class SearchResultExtractor implements ResultsExtractor<List<String>> {
+	static class SearchResultExtractor implements ResultsExtractor<List<String>> {
 
 		@Override
 		public List<String> extract(SearchResponse response) {
@@ -444,12 +1028,32 @@ public class SearchManager {
 		}
 	}
 
+	/**
+	 * Elastic search response parser class to create a list of raw
+	 * json source values, source bytes are not parsed or copied.
+	 * @author Rajesh Upadhyay
+	 */
+	static class RawSearchResultExtractor
+			implements ResultsExtractor<List<RawJson>> {
+
+		@Override
+		public List<RawJson> extract(SearchResponse response) {
+			List<RawJson> results = new ArrayList<>();
+			for (SearchHit hit : response.getHits()) {
+				if (!IUtils.isNull(hit) && hit.hasSource()) {
+					results.add(new RawJson(hit.getSourceRef()));
+				}
+			}
+			return results;
+		}
+	}
+
 	/**
 	 * Elastic search response parser class to create a list from aggregation
 	 * results.
 	 * @author Rajesh Upadhyay
 	 */
-	private static class AggregationResultExtractor
+	static class AggregationResultExtractor
 			implements ResultsExtractor<Map<String, Object>> {
 
 		private Aggregator aggregator;
@@ -460,6 +1064,11 @@ public class SearchManager {
 
 		@Override
 		public Map<String, Object> extract(SearchResponse response) {
+			if (aggregator.hasAggregations() || aggregator.isPaged()) {
+				// Nested, sibling or paged aggregations are returned as buckets tree
+				return new LinkedHashMap<>(AggregationResult.create(
+						Collections.singletonList(aggregator), response.getAggregations()));
+			}
 			Map<String, Object> results = null;
 			Aggregations aggres = response.getAggregations();
 			if (!IUtils.isNull(aggres)) {
@@ -514,110 +1123,109 @@ public class SearchManager {
 	}
 
 	/**
-	 * Method to update entities by query
+	 * Method to update entities by query. It runs update by query in elastic
+	 * for all documents where <b>searchKey</b> has <b>searchValue</b>
+	 * and sets <b>updateKey</b> with <b>updateValue</b>.
 	 * @param type
 	 * @param index
 	 * @param searchKey
 	 * @param searchValue
 	 * @param updateKey
 	 * @param updateValue
-	 * @return
+	 * @param ignoreCase set false to match exact case value.
+	 * @param slices number of parallel slices, less than 1 for auto
+	 * @param refresh set true to refresh index after update
+	 * @return summary of updated and failed documents counts
 	 */
-	public List<?> updateWithQuery(String type, String index, String searchKey,
-			String searchValue, String updateKey, String updateValue) {
-
-		int scrollSize = 5000;
-		int i = 0;
-		Long totalRec = getTotalRecords(type, index);
-		if (totalRec > scrollSize) {
-			scrollSize = totalRec.intValue() + scrollSize;
-		}
-		SearchResponse response = esTemplate.getClient().prepareSearch(index)
-				.setTypes(type).setQuery(QueryBuilders.matchAllQuery())
-				.setSize(scrollSize).setFrom(i * scrollSize).execute().actionGet();
-		String docId = null;
-		JSONObject jsonObj = null;
-		for (SearchHit hit : response.getHits()) {
-			try {
-				jsonObj = new JSONObject(hit.getSourceAsString());
-				if (jsonObj.getString(searchKey).equalsIgnoreCase(searchValue)) {
-					docId = hit.getId();
-					break;
-				}
-			} catch (JSONException e) {
-				logger.error("Exception : ", e);
-			}
-			logger.info("Document id: " + hit.getId());
-			logger.info("Source Document : " + hit.getSourceAsString());
+	public Map<String, Object> updateWithQuery(String type, String index,
+			String searchKey, String searchValue, String updateKey,
+			String updateValue, boolean ignoreCase, int slices, boolean refresh) {
+		Map<String, Object> params = new HashMap<>();
+		params.put("updateKey", updateKey);
+		params.put("updateValue", updateValue);
+		UpdateByQueryRequestBuilder builder = UpdateByQueryAction.INSTANCE
+				.newRequestBuilder(esTemplate.getClient())
+				.source(index)
+				.filter(getKeyQuery(index, searchKey, searchValue, ignoreCase))
+				.script(new Script(ScriptType.INLINE, Script.DEFAULT_SCRIPT_LANG,
+						UPDATE_SCRIPT, params))
+				.abortOnVersionConflict(false)
+				.refresh(refresh);
+		builder.setSlices(slices > 0 ? slices : AbstractBulkByScrollRequest.AUTO_SLICES);
+		builder.source().setSize(SCROLL_SIZE);
+		if (!IUtils.isNullOrEmpty(type)) {
+			builder.source().setTypes(type);
 		}
-
-		if (!StringUtils.isBlank(docId)) {
-			try {
-				jsonObj.put(updateKey, updateValue);
-			} catch (JSONException e) {
-			}
-			UpdateResponse updateResponse = esTemplate.getClient()
-					.prepareUpdate(index, type, docId)
-					.setDoc(jsonObj.toString(), XContentType.JSON)
-					.setRefreshPolicy(WriteRequest.RefreshPolicy.IMMEDIATE)
-					.setDocAsUpsert(true).get();
-			logger.info("Record updated in elastic : Response " + updateResponse);
-		}
-
-		response = esTemplate.getClient().prepareSearch(index).setTypes(type)
-				.setQuery(QueryBuilders.matchAllQuery()).setSize(scrollSize)
-				.setFrom(i * scrollSize).execute().actionGet();
-
-		List<?> results = new SearchResultExtractor().extract(response);
-		return results;
+		BulkByScrollResponse response = builder.get();
+		queryCache.invalidate(index);
+		logger.info("Update by query response: " + response);
+		return IESUtils.getBulkByScrollSummary(response);
 	}
 
 	/**
-	 * Method to delete document by query
+	 * Method to delete all documents matched by query. Documents are
+	 * selected using filters json in {@code FiltersQueryBuilder} format
+	 * and optional search key and value.
 	 * @param type
 	 * @param index
+	 * @param filters json filters, see {@code FiltersQueryBuilder}
 	 * @param searchKey
 	 * @param searchValue
-	 * @return
-	 * @throws InterruptedException
-	 * @throws ExecutionException
+	 * @param ignoreCase set true to delete documents with whole value equal
+	 * to searchValue ignoring case, partially matched values are kept.
+	 * @param slices number of parallel slices, less than 1 for auto
+	 * @param refresh set true to refresh index after delete
+	 * @return summary of deleted and failed documents counts
+	 * @throws Exception if no filter criteria specified
 	 */
-	public List<?> deleteWithQuery(String type, String index, String searchKey,
-			String searchValue) throws InterruptedException, ExecutionException {
-		Long totalRec = getTotalRecords(type, index);
-		if (!IUtils.isNull(totalRec) && totalRec.intValue() > SCROLL_SIZE) {
-			totalRec = totalRec.longValue() + SCROLL_SIZE;
+	public Map<String, Object> deleteWithQuery(String type, String index,
+			String filters, String searchKey, String searchValue,
+			boolean ignoreCase, int slices, boolean refresh) throws Exception {
+		BoolQueryBuilder query = buildDeleteQuery(filters,
+				IUtils.isNullOrEmpty(searchKey) ? null :
+					getKeyQuery(index, searchKey, searchValue, ignoreCase));
+		DeleteByQueryRequestBuilder builder = DeleteByQueryAction.INSTANCE
+				.newRequestBuilder(esTemplate.getClient())
+				.source(index)
+				.filter(query)
+				.abortOnVersionConflict(false)
+				.refresh(refresh);
+		builder.setSlices(slices > 0 ? slices : AbstractBulkByScrollRequest.AUTO_SLICES);
+		builder.source().setSize(SCROLL_SIZE);
+		if (!IUtils.isNullOrEmpty(type)) {
+			builder.source().setTypes(type);
 		}
-		SearchResponse response = esTemplate.getClient().prepareSearch(index)
-				.setTypes(type).setQuery(QueryBuilders.matchAllQuery())
-				.setSize(totalRec.intValue()).setFrom(0).execute().actionGet();
-		String docId = null;
-		JSONObject jsonObj = null;
-		for (SearchHit hit : response.getHits()) {
-			try {
-				jsonObj = new JSONObject(hit.getSourceAsString());
-				if (jsonObj.getString(searchKey).equalsIgnoreCase(searchValue)) {
-					docId = hit.getId();
-					break;
-				}
-			} catch (JSONException e) {
-				logger.error("Exception : ", e);
+		BulkByScrollResponse response = builder.get();
+		queryCache.invalidate(index);
+		logger.info("Delete by query response: " + response);
+		return IESUtils.getBulkByScrollSummary(response);
+	}
+
+	/**
+	 * Method to create delete query from filters json and key query.
+	 * @param filters
+	 * @param keyQuery search key value query, see
+	 * {@link #getKeyQuery(String, String, String, boolean)}
+	 * @return
+	 * @throws Exception if filters are invalid or not specified
+	 */
+	static BoolQueryBuilder buildDeleteQuery(String filters, QueryBuilder keyQuery)
+			throws Exception {
+		BoolQueryBuilder query = QueryBuilders.boolQuery();
+		if (!IUtils.isNullOrEmpty(filters)) {
+			FiltersQueryBuilder fqb = FiltersQueryBuilder.create(null, filters, 0, 0);
+			if (IUtils.isNull(fqb)) {
+				throw new Exception("Failed to parse filters: " + filters);
 			}
-			logger.info("Document id: " + hit.getId());
-			logger.info("Source Document : " + hit.getSourceAsString());
+			query = fqb.buildQuery();
 		}
-
-		esTemplate.getClient()
-				.prepareDelete(index, type, docId)
-				.setRefreshPolicy(WriteRequest.RefreshPolicy.IMMEDIATE).execute().get();
-
-		response = esTemplate.getClient().prepareSearch(index).setTypes(type)
-				.setQuery(QueryBuilders.matchAllQuery()).setSize(totalRec.intValue())
-				.setFrom(0)
-				.execute().actionGet();
-
-		List<?> results = new SearchResultExtractor().extract(response);
-		return results;
+		if (!IUtils.isNull(keyQuery)) {
+			query.filter(keyQuery);
+		}
+		if (!query.hasClauses()) {
+			throw new Exception("Delete query filters are not specified.");
+		}
+		return query;
 	}
 
 	/**
@@ -627,19 +1235,56 @@ public class SearchManager {
 	 * @return
 	 */
 	public Long getTotalRecords(String type, String index) {
+		return getTotalRecords(type, index, false);
+	}
+
+	/**
+	 * Method to count all documents in an index.
+	 * @param type
+	 * @param index
+	 * @param noCache set true to bypass query cache
+	 * @return
+	 */
+	public Long getTotalRecords(String type, String index, boolean noCache) {
 		if (!isIndexExists(index)) {
 			return 0L;
 		}
-		SearchResponse response = esTemplate.getClient().prepareSearch(index)
-				.setTypes(type).setQuery(QueryBuilders.matchAllQuery())
-				.setSize(0).execute().actionGet();
-		if (!IUtils.isNull(response) && !IUtils.isNull(response.getHits())) {
-			logger.debug("Total records : " + response.getHits().getTotalHits());
-			return response.getHits().getTotalHits();
-		} else {
+		Supplier<Long> loader = () -> {
+			SearchRequestBuilder builder = esTemplate.getClient().prepareSearch(index)
+					.setQuery(QueryBuilders.matchAllQuery()).setSize(0);
+			if (!IUtils.isNullOrEmpty(type)) {
+				builder.setTypes(type);
+			}
+			SearchResponse response = builder.execute().actionGet();
+			if (!IUtils.isNull(response) && !IUtils.isNull(response.getHits())) {
+				logger.debug("Total records : " + response.getHits().getTotalHits());
+				return response.getHits().getTotalHits();
+			}
 			return 0L;
+		};
+		if (noCache) {
+			return loader.get();
 		}
+		return queryCache.get(index, QueryCache.key("total", type), loader);
+	}
 
+	/**
+	 * Method to check if index has at least specified number of documents.
+	 * Counting stops early once <b>atLeast</b> documents are found.
+	 * @param type
+	 * @param index
+	 * @param atLeast
+	 * @return map with count and truncated flag
+	 */
+	public Map<String, Object> getTotalRecords(String type, String index, int atLeast) {
+		if (!isIndexExists(index)) {
+			Map<String, Object> res = new HashMap<>();
+			res.put("count", 0L);
+			res.put("truncated", false);
+			return res;
+		}
+		return IESUtils.countAtLeast(esTemplate.getClient(), index, type,
+				QueryBuilders.matchAllQuery(), atLeast);
 	}
 
 	/**
@@ -652,30 +1297,66 @@ public class SearchManager {
 	 */
 	public JSONObject searchWithQuery(String type, String index, String searchKey,
 			String searchValue) {
+		List<String> docs = searchWithQuery(type, index, searchKey, searchValue, 1, true);
+		JSONObject jsonObj = null;
+		if (!IUtils.isNull(docs) && !docs.isEmpty()) {
+			jsonObj = IUtils.getJSONObject(docs.get(0));
+		}
+		logger.info("Searched document : " + jsonObj);
+		return jsonObj;
+	}
+
+	/**
+	 * Method to search documents where <b>searchKey</b> matches with
+	 * <b>searchValue</b>. Lookup runs in elastic so only matching hits
+	 * are fetched, cost does not depend on index size.
+	 * @param type
+	 * @param index
+	 * @param searchKey
+	 * @param searchValue
+	 * @param limit max number of documents to return, less than 1 for default
+	 * @param ignoreCase set true to match value case insensitively
+	 * @return list of matched documents source json
+	 */
+	public List<String> searchWithQuery(String type, String index, String searchKey,
+			String searchValue, int limit, boolean ignoreCase) {
 		if (!isIndexExists(index)) {
-			logger.warn("Index : " + index + ", not exists. Returning null object");
-			return null;
+			logger.warn("Index : " + index + ", not exists. Returning empty list");
+			return Collections.emptyList();
 		}
-		Long totalRec = getTotalRecords(type, index);
-		if (!IUtils.isNull(totalRec) && totalRec.intValue() > SCROLL_SIZE) {
-			totalRec = totalRec.longValue() + SCROLL_SIZE;
+		int size = (limit > 0 ? limit : IConsts.PAGE_SIZE);
+		SearchRequestBuilder builder = esTemplate.getClient().prepareSearch(index)
+				.setQuery(getKeyQuery(index, searchKey, searchValue, ignoreCase))
+				.setSize(size).setFrom(0);
+		if (!IUtils.isNullOrEmpty(type)) {
+			builder.setTypes(type);
 		}
-		SearchResponse response = esTemplate.getClient().prepareSearch(index)
-				.setTypes(type).setQuery(QueryBuilders.matchAllQuery())
-				.setSize(totalRec.intValue()).setFrom(0).execute().actionGet();
-		JSONObject jsonObj = null;
+		SearchResponse response = builder.execute().actionGet();
+		List<String> results = new ArrayList<>();
 		for (SearchHit hit : response.getHits()) {
-			try {
-				jsonObj = new JSONObject(hit.getSourceAsString());
-				if (jsonObj.getString(searchKey).equalsIgnoreCase(searchValue)) {
-					break;
-				}
-			} catch (JSONException e) {
-				logger.error("Exception : ", e);
-			}
+			results.add(new JSONObject(hit.getSourceAsMap()).toString());
 		}
-		logger.info("Searched document : " + jsonObj);
-		return jsonObj;
+		logger.info("Searched documents : " + results.size());
+		return results;
+	}
+
+	/**
+	 * Method to create query to lookup documents by key and value. Value
+	 * is matched ignoring case only if key has normalized keyword sub
+	 * field in index, else exact value is matched.
+	 * @param index existing index name
+	 * @param key
+	 * @param val
+	 * @param ignoreCase
+	 * @return
+	 */
+	QueryBuilder getKeyQuery(String index, String key, String val, boolean ignoreCase) {
+		boolean normalized = ignoreCase && fieldCatalog.isNormalized(index, key);
+		if (ignoreCase && !normalized) {
+			logger.warn("Key " + key + " of " + index
+					+ " is not normalized, matching exact value.");
+		}
+		return IESUtils.getKeyQueryBuilder(key, val, normalized);
 	}
 
 	/**
@@ -684,11 +1365,9 @@ public class SearchManager {
 	 * @return
 	 */
 	public List<?> searchWithClass(String cls) {
-		Class<?> clazz = IUtils.getClass(cls);
-		if (esTemplate.indexExists(clazz)) {
-			String index = esTemplate.getPersistentEntityFor(clazz).getIndexName();
-			String type = esTemplate.getPersistentEntityFor(clazz).getIndexType();
-			return searchWithIndexAndType(type, index);
+		EntityMetadata meta = EntityMetadata.of(cls);
+		if (indexCatalog.exists(meta.getIndexName())) {
+			return searchWithIndexAndType(meta.getIndexType(), meta.getIndexName());
 		}
 		return null;
 	}
@@ -708,9 +1387,16 @@ public class SearchManager {
 		if (!IUtils.isNull(totalRec) && totalRec.intValue() > SCROLL_SIZE) {
 			totalRec = totalRec.longValue() + SCROLL_SIZE;
 		}
-		SearchResponse response = esTemplate.getClient().prepareSearch(index)
-				.setTypes(type).setQuery(QueryBuilders.matchAllQuery())
-				.setSize(totalRec.intValue()).setFrom(0).execute().actionGet();
+		SearchResponse response = null;
+		try {
+			response = esTemplate.getClient().prepareSearch(index)
+					.setTypes(type).setQuery(QueryBuilders.matchAllQuery())
+					.setSize(totalRec.intValue()).setFrom(0).execute().actionGet();
+		} catch (IndexNotFoundException infe) {
+			indexCatalog.indexDeleted(index);
+			logger.warn("Index : " + index + ", is deleted. Returning empty list");
+			return Collections.emptyList();
+		}
 
 		List<?> results = new SearchResultExtractor().extract(response);
 		logger.info("Searched document : " + results.size());
@@ -718,54 +1404,222 @@ public class SearchManager {
 	}
 
 	/**
-	 * Method to check if a index exists.
+	 * Method to write all documents of the class index into output stream.
+	 * @param cls
+	 * @param out
+	 * @param ndjson
+	 * @throws IOException
+	 */
+	public void streamWithClass(String cls, OutputStream out, boolean ndjson)
+			throws IOException {
+		EntityMetadata meta = EntityMetadata.of(cls);
+		if (indexCatalog.exists(meta.getIndexName())) {
+			streamWithIndexAndType(meta.getIndexType(), meta.getIndexName(),
+					out, ndjson);
+		} else {
+			streamWithIndexAndType(null, null, out, ndjson);
+		}
+	}
+
+	/**
+	 * Method to write all documents of index and type into output stream.
+	 * Documents are scrolled batch by batch and written as
+	 * new line delimited json or as a json array, so memory
+	 * is bounded by one scroll batch.
+	 * @param type
 	 * @param index
-	 * @return
+	 * @param out
+	 * @param ndjson set true to write new line delimited documents
+	 * @throws IOException
 	 */
-	private boolean isIndexExists(String index) {
-		boolean isIndexExists = false;
-		try {
-			GetIndexResponse indexes = esTemplate.getClient().admin().indices()
-					.getIndex(new GetIndexRequest()).get();
+	public void streamWithIndexAndType(String type, String index,
+			OutputStream out, boolean ndjson) throws IOException {
+		if (!ndjson) {
+			out.write('[');
+		}
+		if (!IUtils.isNullOrEmpty(index) && isIndexExists(index)) {
+			SearchRequestBuilder builder = esTemplate.getClient().prepareSearch(index)
+					.setQuery(QueryBuilders.matchAllQuery())
+					.addSort(FieldSortBuilder.DOC_FIELD_NAME, SortOrder.ASC)
+					.setSize(SCROLL_SIZE);
+			if (!IUtils.isNullOrEmpty(type)) {
+				builder.setTypes(type);
+			}
+			long[] cnt = new long[1];
+			try {
+				scroll(builder, hits -> {
+					for (SearchHit hit : hits) {
+						BytesReference src = hit.getSourceRef();
+						if (IUtils.isNull(src) || src.length() == 0) {
+							continue;
+						}
+						if (ndjson) {
+							// ndjson needs one document per line
+							if (src.indexOf((byte) '\n', 0) >= 0
+									|| src.indexOf((byte) '\r', 0) >= 0) {
+								src = new BytesArray(XContentHelper.convertToJson(
+										src, false, XContentType.JSON));
+							}
+							src.writeTo(out);
+							out.write('\n');
+						} else {
+							if (cnt[0] > 0) {
+								out.write(',');
+							}
+							src.writeTo(out);
+						}
+						cnt[0]++;
+					}
+					out.flush();
+					return true;
+				});
+			} catch (IndexNotFoundException infe) {
+				indexCatalog.indexDeleted(index);
+				logger.warn("Index : " + index + ", is deleted.");
+			}
+			logger.info("Streamed documents : " + cnt[0]);
+		} else {
+			logger.warn("Index : " + index + ", not exists. Returning empty stream");
+		}
+		if (!ndjson) {
+			out.write(']');
+		}
+		out.flush();
+	}
 
-			for (String s : indexes.getIndices()) {
-				if (s.equals(index)) {
-					isIndexExists = true;
-					break;
-				}
+	/**
+	 * Method to scroll over search results batch by batch. Scroll
+	 * context is always released once scrolling stops.
+	 * @param builder search request with query and batch size
+	 * @param consumer returns false to stop scrolling
+	 * @throws IOException
+	 */
+	private void scroll(SearchRequestBuilder builder, ScrollConsumer consumer)
+			throws IOException {
+		TimeValue keepAlive = TimeValue.timeValueMillis(IConsts.ES_SCROLL_TIMEOUT);
+		SearchResponse response = builder.setScroll(keepAlive).execute().actionGet();
+		String scrollId = response.getScrollId();
+		try {
+			while (response.getHits().getHits().length > 0
+					&& consumer.accept(response.getHits().getHits())) {
+				response = esTemplate.getClient().prepareSearchScroll(scrollId)
+						.setScroll(keepAlive).execute().actionGet();
+				scrollId = response.getScrollId();
+			}
+		} finally {
+			if (!IUtils.isNullOrEmpty(scrollId)) {
+				esTemplate.getClient().prepareClearScroll()
+						.addScrollId(scrollId).execute();
 			}
-		} catch (Exception e) {
-			logger.error("Exception in checking index exists : " + e.getMessage());
 		}
-		return isIndexExists;
+	}
+
+	/**
+	 * Consumer of scroll batches.
+	 */
+	@FunctionalInterface
+	private interface ScrollConsumer {
+		/**
+		 * @param hits batch hits
+		 * @return false to stop scrolling
+		 * @throws IOException
+		 */
+		boolean accept(SearchHit[] hits) throws IOException;
+	}
+
+	/**
+	 * Method to check if a index exists.
+	 * @param index
+	 * @return
+	 */
+	private boolean isIndexExists(String index) {
+		return indexCatalog.exists(index);
 	}
 
 	/**
 	 * Method to create index if not exists and then save the docs into it.
 	 * @param indx
 	 * @param docs
+	 * @return saved documents ids, null for failed documents
+	 * @throws InterruptedException
 	 */
-	public List<String> saveDocs(String indx, List<String> docs) {
+	public List<String> saveDocs(String indx, List<String> docs)
+			throws InterruptedException {
 		List<String> res = null;
-		if (!IUtils.isNullOrEmpty(indx)) {
-			if (!isIndexExists(indx)) {
-				this.createIndex(indx);
-				logger.info("New index '" + indx + "' created.");
-			}
-			if (!IUtils.isNull(docs) && docs.size() > 0) {
-				res = new ArrayList<>();
-				for (String doc : docs) {
-//					IndexQueryBuilder builder = new IndexQueryBuilder();
-//					builder.withIndexName(indx).withObject(IUtils.getJSONObject(doc));
-//					res.add(esTemplate.index(builder.build()));
-					IndexRequest req = new IndexRequest(indx, indx);
-					req.source(IUtils.getMapFromJson(IUtils.getJSONObject(doc)));
-					String docId = esTemplate.getClient().index(req).actionGet().getId();
-					res.add(docId);
+		if (!IUtils.isNullOrEmpty(indx) && !IUtils.isNull(docs) && docs.size() > 0) {
+			createIndexIfNotExists(indx);
+			BulkSession session = bulkManager.open();
+			for (String doc : docs) {
+				session.add(new IndexRequest(indx, indx).source(
+						doc.getBytes(StandardCharsets.UTF_8), XContentType.JSON));
+			}
+			res = new ArrayList<>();
+			for (Map<String, Object> item : session.finish()) {
+				res.add(item.containsKey(BulkManager.ERROR) ? null
+						: (String) item.get(BulkManager.ID));
+			}
+			queryCache.invalidate(indx);
+			logger.info(docs.size() + " docs saved into index: " + indx);
+		}
+		return res;
+	}
+
+	/**
+	 * Method to create index if not exists and then save the documents
+	 * from json array stream into it. Each document bytes are copied
+	 * from stream into bulk requests without parsing into maps.
+	 * @param indx
+	 * @param in json array of documents
+	 * @return id or error of each document in request order
+	 * @throws IOException if stream is not a complete json array, documents
+	 * read before the error are still saved.
+	 * @throws InterruptedException
+	 */
+	public List<Map<String, Object>> saveDocs(String indx, InputStream in)
+			throws IOException, InterruptedException {
+		createIndexIfNotExists(indx);
+		BulkSession session = bulkManager.open();
+		List<Map<String, Object>> res = null;
+		try (JsonParser parser = IUtils.OBJECT_MAPPER.getFactory().createParser(in)) {
+			if (parser.nextToken() != JsonToken.START_ARRAY) {
+				throw new IOException("Documents are not a json array.");
+			}
+			JsonToken token = null;
+			while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+				if (IUtils.isNull(token)) {
+					throw new IOException("Documents json array is not closed.");
+				}
+				if (token == JsonToken.START_OBJECT) {
+					ByteArrayOutputStream out = new ByteArrayOutputStream();
+					try (JsonGenerator gen = IUtils.OBJECT_MAPPER.getFactory()
+							.createGenerator(out)) {
+						gen.copyCurrentStructure(parser);
+					}
+					session.add(new IndexRequest(indx, indx)
+							.source(out.toByteArray(), XContentType.JSON));
+				} else if (token == JsonToken.VALUE_STRING) {
+					// document sent as json string
+					session.add(new IndexRequest(indx, indx).source(
+							parser.getText().getBytes(StandardCharsets.UTF_8),
+							XContentType.JSON));
+				} else {
+					parser.skipChildren();
+					session.addError("Document is not a json object.");
 				}
-				logger.info(docs.size() + " docs saved into index: " + indx);
 			}
+		} finally {
+			// documents added before a stream error are already sent
+			res = session.finish();
+			queryCache.invalidate(indx);
+			logger.info(res.size() + " docs saved into index: " + indx);
 		}
 		return res;
 	}
+
+	private void createIndexIfNotExists(String indx) {
+		if (!isIndexExists(indx)) {
+			this.createIndex(indx);
+			logger.info("New index '" + indx + "' created.");
+		}
+	}
 }
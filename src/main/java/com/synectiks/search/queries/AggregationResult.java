@@ -0,0 +1,160 @@
+/**
+ *
+ */
+package com.synectiks.search.queries;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.elasticsearch.search.aggregations.Aggregation;
+import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.aggregations.bucket.MultiBucketsAggregation;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregation;
+import org.elasticsearch.search.aggregations.bucket.histogram.Histogram;
+import org.elasticsearch.search.aggregations.metrics.NumericMetricsAggregation;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.synectiks.commons.utils.IUtils;
+
+/**
+ * Result of an aggregation with its buckets, each bucket has results of
+ * sub aggregations. Metric aggregations have value instead of buckets.
+ * Paged terms results have {@code afterKey} to request the next page.
+ * @author Rajesh
+ */
+@JsonInclude(Include.NON_NULL)
+public class AggregationResult implements Serializable {
+
+	private static final long serialVersionUID = -4417920383651093208L;
+
+	private final String type;
+	private Double value;
+	private String valueAsString;
+	private List<Bucket> buckets;
+	private Map<String, Object> afterKey;
+
+	private AggregationResult(String type) {
+		this.type = type;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	public Double getValue() {
+		return value;
+	}
+
+	public String getValueAsString() {
+		return valueAsString;
+	}
+
+	public List<Bucket> getBuckets() {
+		return buckets;
+	}
+
+	/**
+	 * Method to get cursor of paged terms, send it as aggregator
+	 * {@code afterKey} to get next page, null if page has no buckets.
+	 * @return
+	 */
+	public Map<String, Object> getAfterKey() {
+		return afterKey;
+	}
+
+	/**
+	 * Method to create results tree of aggregators from response aggregations.
+	 * @param aggregators
+	 * @param aggres aggregations of response or of a bucket
+	 * @return map of aggregation key and its result
+	 */
+	public static Map<String, AggregationResult> create(List<Aggregator> aggregators,
+			Aggregations aggres) {
+		Map<String, AggregationResult> results = new LinkedHashMap<>();
+		if (IUtils.isNull(aggregators) || IUtils.isNull(aggres)) {
+			return results;
+		}
+		for (Aggregator aggregator : aggregators) {
+			if (aggregator.isGroup()) {
+				results.putAll(create(aggregator.getAggregations(), aggres));
+				continue;
+			}
+			Aggregation aggre = aggres.get(aggregator.getAggreKey());
+			if (!IUtils.isNull(aggre)) {
+				results.put(aggregator.getAggreKey(), create(aggregator, aggre));
+			}
+		}
+		return results;
+	}
+
+	private static AggregationResult create(Aggregator aggregator, Aggregation aggre) {
+		AggregationResult res = new AggregationResult(aggre.getType());
+		if (aggre instanceof MultiBucketsAggregation) {
+			boolean isDate = aggre instanceof Histogram
+					&& !IUtils.isNullOrEmpty(aggregator.getFormat());
+			res.buckets = new ArrayList<>();
+			for (MultiBucketsAggregation.Bucket b :
+					((MultiBucketsAggregation) aggre).getBuckets()) {
+				String key = b.getKeyAsString();
+				if (b instanceof CompositeAggregation.Bucket) {
+					// composite key has a single terms source named by field
+					key = String.valueOf(((CompositeAggregation.Bucket) b)
+							.getKey().get(aggregator.getFieldName()));
+				} else if (isDate) {
+					key = IUtils.getFormatedDateFromLongString(key,
+							aggregator.getFormat(), aggregator.getLocale());
+				}
+				res.buckets.add(new Bucket(key, b.getDocCount(),
+						create(aggregator.getAggregations(), b.getAggregations())));
+			}
+			if (aggre instanceof CompositeAggregation && !res.buckets.isEmpty()) {
+				res.afterKey = ((CompositeAggregation) aggre).afterKey();
+			}
+		} else if (aggre instanceof NumericMetricsAggregation.SingleValue) {
+			NumericMetricsAggregation.SingleValue val =
+					(NumericMetricsAggregation.SingleValue) aggre;
+			// empty min or max is infinite, which is not valid json
+			res.value = Double.isNaN(val.value()) || Double.isInfinite(val.value()) ?
+					null : val.value();
+			res.valueAsString = val.getValueAsString();
+		} else {
+			res.valueAsString = String.valueOf(aggre);
+		}
+		return res;
+	}
+
+	/**
+	 * Bucket key with its documents count and sub aggregations results.
+	 */
+	public static class Bucket implements Serializable {
+
+		private static final long serialVersionUID = 6372254061794417452L;
+
+		private final String key;
+		private final long docCount;
+		private final Map<String, AggregationResult> aggregations;
+
+		Bucket(String key, long docCount, Map<String, AggregationResult> aggregations) {
+			this.key = key;
+			this.docCount = docCount;
+			this.aggregations = aggregations;
+		}
+
+		public String getKey() {
+			return key;
+		}
+
+		public long getDocCount() {
+			return docCount;
+		}
+
+		@JsonInclude(Include.NON_EMPTY)
+		public Map<String, AggregationResult> getAggregations() {
+			return aggregations;
+		}
+	}
+}
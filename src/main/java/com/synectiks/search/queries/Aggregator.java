@@ -4,11 +4,18 @@
 package com.synectiks.search.queries;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import org.codehaus.jettison.json.JSONArray;
 import org.codehaus.jettison.json.JSONObject;
 import org.elasticsearch.search.aggregations.AbstractAggregationBuilder;
 import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeValuesSourceBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.TermsValuesSourceBuilder;
 import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramAggregationBuilder ;
 import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramInterval;
 import org.elasticsearch.search.aggregations.bucket.range.RangeAggregationBuilder;
@@ -19,17 +26,25 @@ import org.elasticsearch.search.aggregations.metrics.min.MinAggregationBuilder;
 import org.elasticsearch.search.aggregations.metrics.sum.SumAggregationBuilder;
 import org.joda.time.DateTimeZone;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.synectiks.commons.constants.IConsts;
 import com.synectiks.commons.utils.IUtils;
 
 /**
+ * Aggregation spec, an aggregator can have sub aggregations to compute
+ * in each of its buckets. Aggregator without {@code aggreType} and with
+ * {@code aggregations} is a group of sibling aggregations.
  * @author Rajesh Upadhyay
  */
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class Aggregator implements Serializable {
 
 	private static final long serialVersionUID = -3614131812579108112L;
+	private static final String TERMS = "terms";
+	// Default page size of composite terms, max buckets of plain terms
+	private static final int DEF_PAGE_SIZE = 1000;
+	private static final int MAX_TERMS = 10000;
 
 	private String aggreType;
 	private String fieldType;
@@ -39,6 +54,10 @@ public class Aggregator implements Serializable {
 	private String values;
 	private String locale;
 	private String format;
+	private String name;
+	private List<Aggregator> aggregations;
+	private int pageSize;
+	private Map<String, Object> afterKey;
 
 	public String getAggreType() {
 		return aggreType;
@@ -72,6 +91,62 @@ public class Aggregator implements Serializable {
 		return values;
 	}
 
+	public String getName() {
+		return name;
+	}
+
+	public List<Aggregator> getAggregations() {
+		return aggregations;
+	}
+
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	public Map<String, Object> getAfterKey() {
+		return afterKey;
+	}
+
+	/**
+	 * Method to check if terms buckets are paged using composite
+	 * aggregation, i.e. page size or after key is specified.
+	 * @return
+	 */
+	@JsonIgnore
+	public boolean isPaged() {
+		return TERMS.equals(aggreType) && (pageSize > 0 || !IUtils.isNull(afterKey));
+	}
+
+	/**
+	 * Method to check if aggregator is a date histogram of counts
+	 * without sub aggregations.
+	 * @return
+	 */
+	@JsonIgnore
+	public boolean isDateHistogram() {
+		return "count".equals(aggreType) && "date".equalsIgnoreCase(fieldType)
+				&& !IUtils.isNullOrEmpty(fieldName) && !IUtils.isNullOrEmpty(interval)
+				&& !hasAggregations();
+	}
+
+	/**
+	 * Method to check if aggregator is only a group of sibling aggregations.
+	 * @return
+	 */
+	@JsonIgnore
+	public boolean isGroup() {
+		return IUtils.isNullOrEmpty(aggreType) && hasAggregations();
+	}
+
+	/**
+	 * Method to check if aggregator has sub or sibling aggregations,
+	 * its results are returned as nested buckets tree.
+	 * @return
+	 */
+	public boolean hasAggregations() {
+		return !IUtils.isNull(aggregations) && !aggregations.isEmpty();
+	}
+
 	public void setValues(String values) {
 		this.values = values;
 	}
@@ -104,7 +179,26 @@ public class Aggregator implements Serializable {
 		this.format = format;
 	}
 
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public void setAggregations(List<Aggregator> aggregations) {
+		this.aggregations = aggregations;
+	}
+
+	public void setPageSize(int pageSize) {
+		this.pageSize = pageSize;
+	}
+
+	public void setAfterKey(Map<String, Object> afterKey) {
+		this.afterKey = afterKey;
+	}
+
 	public String getAggreKey() {
+		if (!IUtils.isNullOrEmpty(name)) {
+			return name;
+		}
 		if (!IUtils.isNullOrEmpty(aggreType) &&
 				!IUtils.isNullOrEmpty(fieldName)) {
 			// Create a combined key for aggregation query
@@ -117,19 +211,54 @@ public class Aggregator implements Serializable {
 		return null;
 	}
 
+	/**
+	 * Method to generate builders of aggregator, or of its sibling
+	 * aggregations if aggregator is a group.
+	 * @return list of aggregation builders
+	 */
+	public List<AbstractAggregationBuilder<?>> createAggregationBuilders() {
+		if (!isGroup()) {
+			AbstractAggregationBuilder<?> builder = createAggregationBuilder();
+			return IUtils.isNull(builder) ? Collections.emptyList() :
+				Collections.singletonList(builder);
+		}
+		List<AbstractAggregationBuilder<?>> builders = new ArrayList<>();
+		for (Aggregator aggre : aggregations) {
+			builders.addAll(aggre.createAggregationBuilders());
+		}
+		return builders;
+	}
+
+	/**
+	 * Method generate aggregation builder from parameters with
+	 * its sub aggregations.
+	 * @return {@code AbstractAggregationBuilder} object or null
+	 */
+	public AbstractAggregationBuilder<?> createAggregationBuilder() {
+		AbstractAggregationBuilder<?> aggBuilder = createBuilder();
+		if (!IUtils.isNull(aggBuilder) && hasAggregations()) {
+			for (Aggregator aggre : aggregations) {
+				for (AbstractAggregationBuilder<?> sub : aggre.createAggregationBuilders()) {
+					aggBuilder.subAggregation(sub);
+				}
+			}
+		}
+		return aggBuilder;
+	}
+
 	/**
 	 * Method generate {@code DateHistogramBuilder} object from parameters
 	 * @return {@code DateHistogramBuilder} object or null
 	 */
-	public AbstractAggregationBuilder createAggregationBuilder() {
+	private AbstractAggregationBuilder createBuilder() {
 		AbstractAggregationBuilder aggBuilder = null;
 		if (!IUtils.isNullOrEmpty(aggreType)) {
 			switch (aggreType) {
 			case "count":
 				aggBuilder = getCountAggreBuilder();
 				break;
-			case "terms":
-				aggBuilder = getTermsAggreBuilder();
+			case TERMS:
+				aggBuilder = isPaged() ? getCompositeTermsBuilder() : getTermsAggreBuilder();
 				break;
 			case "avg":
 				aggBuilder = AggregationBuilders.avg(
@@ -211,9 +340,34 @@ public class Aggregator implements Serializable {
 	private AbstractAggregationBuilder getTermsAggreBuilder() {
 		TermsAggregationBuilder builder = AggregationBuilders.terms(getAggreKey());
 		builder.field(fieldName);
-		builder.includeExclude(new IncludeExclude(
-				IUtils.getArrayFromJsonString(values), null));
-		builder.size(0);
+		String[] arr = IUtils.getArrayFromJsonString(values);
+		builder.includeExclude(new IncludeExclude(arr, null));
+		// size 0 is rejected by elastic, bound it to the requested values
+		builder.size(IUtils.isNull(arr) || arr.length == 0 ? MAX_TERMS : arr.length);
+		return builder;
+	}
+
+	/**
+	 * Method to generate composite aggregation builder to get terms
+	 * buckets page by page, next page starts after {@code afterKey}
+	 * of previous page result. Composite sources can not be limited to
+	 * {@code values}, so paged terms with values are rejected.
+	 * @return
+	 * @throws IllegalArgumentException if values are set
+	 */
+	private AbstractAggregationBuilder getCompositeTermsBuilder() {
+		if (!IUtils.isNullOrEmpty(values)) {
+			throw new IllegalArgumentException(
+					"Terms values can not be used with pageSize or afterKey: " + values);
+		}
+		List<CompositeValuesSourceBuilder<?>> sources = new ArrayList<>();
+		sources.add(new TermsValuesSourceBuilder(fieldName).field(fieldName));
+		CompositeAggregationBuilder builder = AggregationBuilders.composite(
+				getAggreKey(), sources);
+		builder.size(pageSize > 0 ? pageSize : DEF_PAGE_SIZE);
+		if (!IUtils.isNull(afterKey)) {
+			builder.aggregateAfter(afterKey);
+		}
 		return builder;
 	}
 
@@ -258,6 +412,14 @@ public class Aggregator implements Serializable {
 		builder.append(format);
 		builder.append(", values=");
 		builder.append(values);
+		builder.append(", name=");
+		builder.append(name);
+		builder.append(", aggregations=");
+		builder.append(aggregations);
+		builder.append(", pageSize=");
+		builder.append(pageSize);
+		builder.append(", afterKey=");
+		builder.append(afterKey);
 		builder.append("]");
 		return builder.toString();
 	}
@@ -20,6 +20,7 @@ import org.springframework.data.elasticsearch.core.query.SearchQuery;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.synectiks.commons.utils.IUtils;
+import com.synectiks.search.utils.EntityMetadata;
 import com.synectiks.search.utils.IESUtils;
 import com.synectiks.search.utils.IESUtils.ESQryType;
 
@@ -160,20 +161,34 @@ public class ESExpression {
 			PageRequest pageReq = IESUtils.getPageRequest(pageNo, pageSize);
 			String indexName = null;
 			if (IUtils.isNullOrEmpty(indexName ) && !IUtils.isNullOrEmpty(clazz)) {
-				indexName = IESUtils.getIndexName(IUtils.getClass(clazz));
+				indexName = IESUtils.getIndexName(EntityMetadata.classOf(clazz));
 			}
 			// Finally create a bool query builder with query type
+			BoolQueryBuilder boolQB = buildQuery();
+			logger.info("BoolQuery: " + boolQB);
+			return IESUtils.getNativeSearchQuery(boolQB, indexName, pageReq,
+					getAggregationBuilders(aggre));
+		}
+
+		/**
+		 * Method to build bool query from and, or, not and filters clauses
+		 * @return {@code BoolQueryBuilder} object
+		 */
+		public BoolQueryBuilder buildQuery() {
 			BoolQueryBuilder boolQB = QueryBuilders.boolQuery();
 			IESUtils.processFilter(and, ESQryType.MATCH, boolQB);
 			IESUtils.processFilter(or, ESQryType.SHOULD, boolQB);
 			IESUtils.processFilter(not, ESQryType.NOT, boolQB);
 			IESUtils.processFilter(filters, ESQryType.FILTER, boolQB);
-			AbstractAggregationBuilder<?> aggreBuilder = null;
+			return boolQB;
+		}
+
+		private static List<AbstractAggregationBuilder<?>> getAggregationBuilders(
+				Aggregator aggre) {
 			if (!IUtils.isNull(aggre)) {
-				aggreBuilder = aggre.createAggregationBuilder();
+				return aggre.createAggregationBuilders();
 			}
-			logger.info("BoolQuery: " + boolQB);
-			return IESUtils.getNativeSearchQuery(boolQB, indexName, pageReq, aggreBuilder);
+			return null;
 		}
 
 		/**
@@ -248,10 +263,20 @@ public class ESExpression {
 		 * @return
 		 */
 		public SearchQuery build() {
-			List<String> lst = IUtils.getListFromString(fields, null);
-			if (IUtils.isNullOrEmpty(indexName) && !IUtils.isNullOrEmpty(clazz)) {
-				indexName = IESUtils.getIndexName(IUtils.getClass(clazz));
+			String indxName = indexName;
+			if (IUtils.isNullOrEmpty(indxName) && !IUtils.isNullOrEmpty(clazz)) {
+				indxName = IESUtils.getIndexName(EntityMetadata.classOf(clazz));
 			}
+			PageRequest pageReq = IESUtils.getPageRequest(pageNo, pageSize);
+			return IESUtils.getNativeSearchQuery(buildQuery(), indxName, pageReq, null);
+		}
+
+		/**
+		 * Method to build query of query string and fields
+		 * @return
+		 */
+		public QueryBuilder buildQuery() {
+			List<String> lst = IUtils.getListFromString(fields, null);
 			QueryBuilder qb = null;
 			if (IESUtils.isNested(lst)) {
 				List<QueryBuilder> builders = IESUtils.createNestedQueries(
@@ -270,8 +295,7 @@ public class ESExpression {
 				qb = IESUtils.createBoolQuery(
 						IESUtils.ESQryType.SHOULD, qStrBuilder);
 			}
-			PageRequest pageReq = IESUtils.getPageRequest(pageNo, pageSize);
-			return IESUtils.getNativeSearchQuery(qb, indexName, pageReq, null);
+			return qb;
 		}
 	}
 
@@ -0,0 +1,142 @@
+/**
+ *
+ */
+package com.synectiks.search.queries;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.common.document.DocumentField;
+import org.elasticsearch.search.SearchHit;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilter;
+import org.springframework.data.elasticsearch.core.query.SearchQuery;
+
+import com.synectiks.commons.utils.IUtils;
+
+/**
+ * Class to hold the fields to fetch from elastic, either as
+ * filtered source or as doc values of keyword and numeric fields.
+ * @author Rajesh Upadhyay
+ */
+public class FieldsProjection {
+
+	public static final String ID = "_id";
+
+	private final String[] includes;
+	private final String[] excludes;
+	private final String[] docValueFields;
+
+	private FieldsProjection(String[] includes, String[] excludes,
+			String[] docValueFields) {
+		this.includes = includes;
+		this.excludes = excludes;
+		this.docValueFields = docValueFields;
+	}
+
+	/**
+	 * Create projection from comma separated fields names.
+	 * @param includes source fields to include
+	 * @param excludes source fields to exclude
+	 * @param docValueFields fields to fetch from doc values
+	 * @return {@code FieldsProjection} object, null if no field is set
+	 */
+	public static FieldsProjection create(String includes, String excludes,
+			String docValueFields) {
+		String[] incl = toArray(includes);
+		String[] excl = toArray(excludes);
+		String[] dvFlds = toArray(docValueFields);
+		if (IUtils.isNull(incl) && IUtils.isNull(excl) && IUtils.isNull(dvFlds)) {
+			return null;
+		}
+		return new FieldsProjection(incl, excl, dvFlds);
+	}
+
+	public String[] getIncludes() {
+		return includes;
+	}
+
+	public String[] getExcludes() {
+		return excludes;
+	}
+
+	public String[] getDocValueFields() {
+		return docValueFields;
+	}
+
+	/**
+	 * @return true if fields should be loaded from doc values.
+	 */
+	public boolean hasDocValueFields() {
+		return !IUtils.isNull(docValueFields);
+	}
+
+	/**
+	 * Method to set source filter into query.
+	 * @param sQry
+	 */
+	public void applyTo(SearchQuery sQry) {
+		if (!IUtils.isNull(includes) || !IUtils.isNull(excludes)) {
+			sQry.addSourceFilter(new FetchSourceFilter(includes, excludes));
+		}
+	}
+
+	/**
+	 * Method to set source filter and doc value fields into search request.
+	 * Source is not fetched if only doc value fields are requested.
+	 * @param builder
+	 */
+	public void applyTo(SearchRequestBuilder builder) {
+		if (!IUtils.isNull(includes) || !IUtils.isNull(excludes)) {
+			builder.setFetchSource(includes, excludes);
+		} else if (hasDocValueFields()) {
+			builder.setFetchSource(false);
+		}
+		if (hasDocValueFields()) {
+			for (String fld : docValueFields) {
+				builder.addDocValueField(fld);
+			}
+		}
+	}
+
+	/**
+	 * Method to create partial document from search hit source
+	 * and doc value fields.
+	 * @param hit
+	 * @return
+	 */
+	public Map<String, Object> toDocument(SearchHit hit) {
+		Map<String, Object> doc = new LinkedHashMap<>();
+		doc.put(ID, hit.getId());
+		if (hit.hasSource()) {
+			doc.putAll(hit.getSourceAsMap());
+		}
+		if (hasDocValueFields()) {
+			for (String fld : docValueFields) {
+				DocumentField field = hit.field(fld);
+				if (!IUtils.isNull(field)) {
+					List<Object> values = field.getValues();
+					doc.put(fld, values.size() == 1 ? values.get(0) : values);
+				}
+			}
+		}
+		return doc;
+	}
+
+	@Override
+	public String toString() {
+		return "includes=" + Arrays.toString(includes)
+				+ ", excludes=" + Arrays.toString(excludes)
+				+ ", docValueFields=" + Arrays.toString(docValueFields);
+	}
+
+	private static String[] toArray(String fields) {
+		if (IUtils.isNullOrEmpty(fields) || fields.trim().isEmpty()) {
+			return null;
+		}
+		List<String> lst = IUtils.getListFromString(fields, null);
+		return lst.toArray(new String[lst.size()]);
+	}
+}
@@ -0,0 +1,136 @@
+/**
+ *
+ */
+package com.synectiks.search.queries;
+
+import java.io.Serializable;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonSetter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.synectiks.commons.utils.IUtils;
+
+/**
+ * One filters query of a multi search request. Item returns entities
+ * list, count if {@code count} is set or aggregation counts if an
+ * {@code aggregator} is specified. Lists could be projected using comma
+ * separated {@code includes}, {@code excludes} and {@code docValueFields}
+ * as in list api.
+ * @author Rajesh
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class MultiSearchItem implements Serializable {
+
+	private static final long serialVersionUID = 2793452017743165831L;
+
+	private String cls;
+	private String filters = "{}";
+	private int pageNo;
+	private int pageSize;
+	private boolean count;
+	private Aggregator aggregator;
+	private String includes;
+	private String excludes;
+	private String docValueFields;
+
+	public String getCls() {
+		return cls;
+	}
+
+	public String getFilters() {
+		return filters;
+	}
+
+	public int getPageNo() {
+		return pageNo;
+	}
+
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	public boolean isCount() {
+		return count;
+	}
+
+	public Aggregator getAggregator() {
+		return aggregator;
+	}
+
+	public String getIncludes() {
+		return includes;
+	}
+
+	public String getExcludes() {
+		return excludes;
+	}
+
+	public String getDocValueFields() {
+		return docValueFields;
+	}
+
+	@JsonIgnore
+	public boolean isAggregation() {
+		return !IUtils.isNull(aggregator);
+	}
+
+	/**
+	 * @return fields projection of list, null for whole entities
+	 */
+	@JsonIgnore
+	public FieldsProjection getProjection() {
+		return FieldsProjection.create(includes, excludes, docValueFields);
+	}
+
+	public void setCls(String cls) {
+		this.cls = cls;
+	}
+
+	/**
+	 * Filters could be sent as json object or as json string.
+	 * @param filters
+	 */
+	@JsonSetter("filters")
+	public void setFilters(JsonNode filters) {
+		if (!IUtils.isNull(filters) && !filters.isNull()) {
+			this.filters = filters.isTextual() ? filters.asText() : filters.toString();
+		}
+	}
+
+	public void setPageNo(int pageNo) {
+		this.pageNo = pageNo;
+	}
+
+	public void setPageSize(int pageSize) {
+		this.pageSize = pageSize;
+	}
+
+	public void setCount(boolean count) {
+		this.count = count;
+	}
+
+	public void setAggregator(Aggregator aggregator) {
+		this.aggregator = aggregator;
+	}
+
+	public void setIncludes(String includes) {
+		this.includes = includes;
+	}
+
+	public void setExcludes(String excludes) {
+		this.excludes = excludes;
+	}
+
+	public void setDocValueFields(String docValueFields) {
+		this.docValueFields = docValueFields;
+	}
+
+	@Override
+	public String toString() {
+		return "{cls: " + cls + ", filters: " + filters + ", pageNo: " + pageNo
+				+ ", pageSize: " + pageSize + ", count: " + count
+				+ ", aggregator: " + aggregator + ", includes: " + includes
+				+ ", excludes: " + excludes + ", docValueFields: " + docValueFields + "}";
+	}
+}
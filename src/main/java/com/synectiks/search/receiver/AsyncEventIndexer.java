@@ -0,0 +1,242 @@
+/**
+ *
+ */
+package com.synectiks.search.receiver;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.elasticsearch.core.ElasticsearchTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import com.synectiks.commons.exceptions.SynectiksException;
+import com.synectiks.commons.utils.IUtils;
+import com.synectiks.search.config.ApplicationProperties;
+import com.synectiks.search.manager.BulkManager;
+import com.synectiks.search.manager.IndexCatalog;
+import com.synectiks.search.manager.QueryCache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Indexer to queue entity events and write them into elastic using bulk
+ * requests from background workers. Enabled by
+ * {@code application.event-indexer.async} property.
+ * @author Rajesh
+ */
+@Component
+public class AsyncEventIndexer {
+
+	private static final Logger logger = LoggerFactory.getLogger(AsyncEventIndexer.class);
+	private static final long POLL_TIMEOUT = 500;
+
+	@Autowired
+	private ElasticsearchTemplate esTemplate;
+	@Autowired
+	private ApplicationProperties props;
+	@Autowired
+	private QueryCache queryCache;
+	@Autowired
+	private IndexCatalog indexCatalog;
+	@Autowired
+	private MeterRegistry registry;
+
+	private BlockingQueue<PendingRequest> queue;
+	private ExecutorService workers;
+	private volatile boolean running = false;
+	// submits hold read lock, so no event is queued after shutdown starts
+	private final ReadWriteLock stateLock = new ReentrantReadWriteLock();
+	private Timer flushTimer;
+	private Counter indexed;
+	private Counter failed;
+
+	@PostConstruct
+	public void init() {
+		ApplicationProperties.EventIndexer conf = props.getEventIndexer();
+		if (!conf.isAsync()) {
+			return;
+		}
+		queue = new ArrayBlockingQueue<>(conf.getQueueCapacity());
+		Gauge.builder("search.events.queue.depth", queue, BlockingQueue::size)
+				.description("Events waiting to be indexed").register(registry);
+		flushTimer = Timer.builder("search.events.flush.latency")
+				.description("Time taken by event bulk requests").register(registry);
+		indexed = registry.counter("search.events.indexed");
+		failed = registry.counter("search.events.failed");
+		running = true;
+		workers = Executors.newFixedThreadPool(conf.getWorkers(),
+				new CustomizableThreadFactory("search-event-indexer-"));
+		for (int i = 0; i < conf.getWorkers(); i++) {
+			workers.execute(this::drain);
+		}
+		logger.info("Async event indexer started with " + conf.getWorkers() + " workers");
+	}
+
+	/**
+	 * @return true if events should be indexed asynchronously.
+	 */
+	public boolean isEnabled() {
+		return running;
+	}
+
+	/**
+	 * Method to add a request into queue. Waits for configured enqueue
+	 * timeout if queue is full. Invalid request is not queued, as it would
+	 * fail all requests of its bulk, its future is failed instead.
+	 * @param request index or delete request
+	 * @return future completed with document id once request is flushed
+	 * @throws SynectiksException if queue is full or indexer is stopped
+	 */
+	public CompletableFuture<String> submit(DocWriteRequest<?> request)
+			throws SynectiksException {
+		CompletableFuture<String> future = new CompletableFuture<>();
+		String error = BulkManager.validate(request);
+		if (!IUtils.isNull(error)) {
+			failed.increment();
+			future.completeExceptionally(new SynectiksException(error));
+			return future;
+		}
+		boolean added = false;
+		stateLock.readLock().lock();
+		try {
+			added = running && queue.offer(new PendingRequest(request, future),
+					props.getEventIndexer().getEnqueueTimeout(), TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			stateLock.readLock().unlock();
+		}
+		if (!added) {
+			throw new SynectiksException("Event queue is full or indexer is stopped.");
+		}
+		return future;
+	}
+
+	/**
+	 * Worker loop to drain queue into bulk requests.
+	 */
+	private void drain() {
+		ApplicationProperties.Bulk conf = props.getBulk();
+		List<PendingRequest> batch = new ArrayList<>(conf.getBatchSize());
+		while (running || !queue.isEmpty()) {
+			try {
+				PendingRequest first = queue.poll(POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					continue;
+				}
+				BulkRequest bulk = new BulkRequest();
+				batch.add(first);
+				bulk.add(first.request);
+				PendingRequest next = null;
+				while (batch.size() < conf.getBatchSize()
+						&& bulk.estimatedSizeInBytes() < conf.getBatchBytes()
+						&& (next = queue.poll()) != null) {
+					batch.add(next);
+					bulk.add(next.request);
+				}
+				flush(bulk, batch);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			} catch (Throwable th) {
+				logger.error("Failed to index events: " + th.getMessage(), th);
+				for (PendingRequest req : batch) {
+					req.future.completeExceptionally(th);
+				}
+				failed.increment(batch.size());
+			} finally {
+				batch.clear();
+			}
+		}
+	}
+
+	private void flush(BulkRequest bulk, List<PendingRequest> batch) {
+		long start = System.nanoTime();
+		BulkResponse response = esTemplate.getClient().bulk(bulk).actionGet();
+		flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		Set<String> indices = new HashSet<>();
+		BulkItemResponse[] items = response.getItems();
+		for (int i = 0; i < items.length; i++) {
+			PendingRequest req = batch.get(i);
+			indices.add(items[i].getIndex());
+			if (items[i].isFailed()) {
+				failed.increment();
+				req.future.completeExceptionally(
+						new SynectiksException(items[i].getFailureMessage()));
+			} else {
+				indexed.increment();
+				indexCatalog.indexCreated(items[i].getIndex());
+				req.future.complete(items[i].getId());
+			}
+		}
+		indices.forEach(queryCache::invalidate);
+	}
+
+	/**
+	 * Stop accepting events and wait till queued events are flushed.
+	 * Events still queued after close timeout are failed.
+	 */
+	@PreDestroy
+	public void shutdown() {
+		stateLock.writeLock().lock();
+		try {
+			if (!running) {
+				return;
+			}
+			running = false;
+		} finally {
+			stateLock.writeLock().unlock();
+		}
+		logger.info("Draining " + queue.size() + " queued events");
+		workers.shutdown();
+		try {
+			if (!workers.awaitTermination(
+					props.getBulk().getCloseTimeout(), TimeUnit.MILLISECONDS)) {
+				logger.warn("Event indexer stopped with "
+						+ queue.size() + " events in queue");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		PendingRequest req = null;
+		while ((req = queue.poll()) != null) {
+			failed.increment();
+			req.future.completeExceptionally(
+					new SynectiksException("Event indexer is stopped."));
+		}
+	}
+
+	private static class PendingRequest {
+		private final DocWriteRequest<?> request;
+		private final CompletableFuture<String> future;
+
+		PendingRequest(DocWriteRequest<?> request, CompletableFuture<String> future) {
+			this.request = request;
+			this.future = future;
+		}
+	}
+}
@@ -3,18 +3,45 @@
  */
 package com.synectiks.search.receiver;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.DocWriteResponse.Result;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.common.xcontent.XContentType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.elasticsearch.core.ElasticsearchTemplate;
-import org.springframework.data.elasticsearch.core.query.IndexQueryBuilder;
 import org.springframework.stereotype.Component;
 
 import com.synectiks.commons.entities.search.ESEvent;
+import com.synectiks.commons.entities.search.ESEvent.EventType;
 import com.synectiks.commons.exceptions.SynectiksException;
-import com.synectiks.commons.interfaces.IESEntity;
 import com.synectiks.commons.receiver.ESEventReceiver;
 import com.synectiks.commons.utils.IUtils;
+import com.synectiks.search.config.ApplicationProperties;
+import com.synectiks.search.manager.BulkManager;
+import com.synectiks.search.manager.BulkManager.BulkSession;
+import com.synectiks.search.manager.IndexCatalog;
+import com.synectiks.search.manager.QueryCache;
+import com.synectiks.search.utils.EntityMetadata;
 import com.synectiks.search.utils.IESUtils;
 
 /**
@@ -24,9 +51,23 @@ import com.synectiks.search.utils.IESUtils;
 public class SearchESEventReceiver extends ESEventReceiver {
 
 	private static final Logger logger = LoggerFactory.getLogger(SearchESEventReceiver.class);
+	public static final String QUEUED = "QUEUED";
+	private static final String CREATED = Result.CREATED.getLowercase();
 
 	@Autowired
 	private ElasticsearchTemplate searchTemplate;
+	@Autowired
+	private QueryCache queryCache;
+	@Autowired
+	private IndexCatalog indexCatalog;
+	@Autowired
+	private AsyncEventIndexer asyncIndexer;
+	@Autowired
+	private BulkManager bulkManager;
+	@Autowired
+	private ApplicationProperties props;
+
+	private ForkJoinPool parserPool;
 
 	public SearchESEventReceiver() {
 		super();
@@ -34,16 +75,37 @@ public class SearchESEventReceiver extends ESEventReceiver {
 		handleEvents = false;
 	}
 
+	@PostConstruct
+	public void init() {
+		parserPool = new ForkJoinPool(props.getBulk().getParserThreads());
+	}
+
+	@PreDestroy
+	public void destroy() {
+		parserPool.shutdown();
+	}
+
 	/**
 	 * Method to handle {@code LmsEvent} from api call
 	 * @param event {@code LmsEvent} instance
-	 * @return
+	 * @return document id, or {@code QUEUED} if event is queued
+	 * for async indexing.
 	 * @throws SynectiksException 
 	 */
 	@Override
 	public String handleEvent(ESEvent event) throws SynectiksException {
 		String res = null;
 		if (!IUtils.isNull(event)) {
+			if (asyncIndexer.isEnabled()) {
+				// caller does not wait for queued event, so log its failure
+				submitEvent(event).whenComplete((id, th) -> {
+					if (!IUtils.isNull(th)) {
+						logger.warn("Failed to index queued " + event.getEventType()
+								+ " event: " + th.getMessage());
+					}
+				});
+				return QUEUED;
+			}
 			switch(event.getEventType()) {
 			case DELETE:
 				res = deleteIndex(event);
@@ -59,6 +121,131 @@ public class SearchESEventReceiver extends ESEventReceiver {
 		return res;
 	}
 
+	/**
+	 * Method to handle events for an array of entities. Entities are parsed
+	 * in parallel on a bounded pool and written using bulk requests.
+	 * @param cls fully qualified entity class name
+	 * @param eventType {@code EventType} name
+	 * @param entities entities json strings
+	 * @return one result for each entity, document id or failed response.
+	 * @throws Exception
+	 */
+	public List<Object> handleEvents(String cls, String eventType, String[] entities)
+			throws Exception {
+		Class<?> clazz = EntityMetadata.classOf(cls);
+		EventType evType = EventType.valueOf(eventType);
+		// Parse entities into requests, keep exceptions at their position
+		List<Object> parsed = parserPool.submit(() -> Arrays.stream(entities)
+				.parallel().map(entity -> {
+					try {
+						return (Object) createRequest(
+								IESUtils.createEvent(clazz, evType, entity));
+					} catch (Throwable th) {
+						return th;
+					}
+				}).collect(Collectors.toList())).get();
+		List<Object> res = new ArrayList<>(parsed.size());
+		BulkSession session = bulkManager.open();
+		for (Object obj : parsed) {
+			if (obj instanceof DocWriteRequest) {
+				session.add((DocWriteRequest<?>) obj);
+			} else {
+				session.addError(obj instanceof Throwable ?
+						((Throwable) obj).getMessage() : "Entity object is null.");
+			}
+		}
+		List<Map<String, Object>> items = session.finish();
+		// Newly created documents keep histogram buckets before their dates,
+		// any other write drops histograms of its index
+		Map<String, List<Map<String, Object>>> created = new HashMap<>();
+		Set<String> changed = new HashSet<>();
+		for (int i = 0; i < items.size(); i++) {
+			Map<String, Object> item = items.get(i);
+			if (item.containsKey(BulkManager.ERROR)) {
+				res.add(IUtils.getFailedResponse(
+						new Exception((String) item.get(BulkManager.ERROR))));
+			} else {
+				res.add(item.get(BulkManager.ID));
+			}
+			if (parsed.get(i) instanceof DocWriteRequest) {
+				DocWriteRequest<?> req = (DocWriteRequest<?>) parsed.get(i);
+				if (req instanceof IndexRequest && CREATED.equals(item.get(BulkManager.RESULT))) {
+					created.computeIfAbsent(req.index(), k -> new ArrayList<>())
+							.add(((IndexRequest) req).sourceAsMap());
+				} else {
+					changed.add(req.index());
+				}
+			}
+		}
+		changed.forEach(queryCache::invalidate);
+		created.forEach((index, docs) -> {
+			if (!changed.contains(index)) {
+				queryCache.invalidate(index, docs);
+			}
+		});
+		return res;
+	}
+
+	/**
+	 * Method to handle event asynchronously if async indexer is enabled,
+	 * else event is handled on caller thread.
+	 * @param event
+	 * @return future completed with document id
+	 * @throws SynectiksException
+	 */
+	public CompletableFuture<String> submitEvent(ESEvent event)
+			throws SynectiksException {
+		if (IUtils.isNull(event) || !asyncIndexer.isEnabled()) {
+			return CompletableFuture.completedFuture(handleEvent(event));
+		}
+		DocWriteRequest<?> req = createRequest(event);
+		if (IUtils.isNull(req)) {
+			return CompletableFuture.completedFuture(null);
+		}
+		return asyncIndexer.submit(req);
+	}
+
+	/**
+	 * Method to create elastic index or delete request for event.
+	 * @param event
+	 * @return request or null if event has no entity
+	 * @throws SynectiksException if entity has no index name, or has no id
+	 * to update or delete
+	 */
+	public DocWriteRequest<?> createRequest(ESEvent event) throws SynectiksException {
+		if (IUtils.isNull(event) || IUtils.isNull(event.getEntity())) {
+			return null;
+		}
+		Object target = event.getEntity();
+		String id = IESUtils.getESID(target);
+		String indxName = IESUtils.getIndexName(target);
+		String indxType = IESUtils.getIndexType(target);
+		if (IUtils.isNullOrEmpty(indxName)) {
+			throw new SynectiksException("Index name is missing for entity: "
+					+ target.getClass().getName());
+		}
+		// elastic generates id of created documents only
+		if (IUtils.isNullOrEmpty(id) && event.getEventType() != EventType.CREATE) {
+			throw new SynectiksException("Entity id is missing to "
+					+ event.getEventType() + " document in " + indxName);
+		}
+		switch(event.getEventType()) {
+		case DELETE:
+			return new DeleteRequest(indxName, indxType, id);
+		case CREATE:
+		case UPDATE:
+			try {
+				return new IndexRequest(indxName, indxType, id).source(
+						toSource(target), XContentType.JSON);
+			} catch (IOException e) {
+				throw new SynectiksException(e.getMessage());
+			}
+		default:
+			logger.error("Unknown Event type: " + event.getEventType());
+			return null;
+		}
+	}
+
 	/**
 	 * Method to index an entity sent by fired event.
 	 * @param event
@@ -68,29 +255,32 @@ public class SearchESEventReceiver extends ESEventReceiver {
 	public String createIndex(ESEvent event) throws SynectiksException {
 		String res = null;
 		logger.info("Handling create index");
-		if (!IUtils.isNull(event) && !IUtils.isNull(event.getEntity())) {
-			IndexQueryBuilder indxQryBuilder = new IndexQueryBuilder();
-			IESEntity target = (IESEntity) event.getEntity();
-			if (!IUtils.isNullOrEmpty(IESUtils.getESID(target))) {
-				logger.info("ESID: " + IESUtils.getESID(target));
-				indxQryBuilder.withId(IESUtils.getESID(target));
-			}
-			if (!IUtils.isNullOrEmpty(IESUtils.getIndexName(target))) {
-				logger.info("getIndexName: " + IESUtils.getIndexName(target));
-				indxQryBuilder.withIndexName(IESUtils.getIndexName(target));
-			}
-			if (!IUtils.isNullOrEmpty(IESUtils.getIndexType(target))) {
-				logger.info("getIndexType: " + IESUtils.getIndexType(target));
-				indxQryBuilder.withId(IESUtils.getIndexType(target));
-			}
-			// finally set object to index
-			indxQryBuilder.withObject(target);
-			logger.info("index: " + IESUtils.getIndexName(target));
-			res = searchTemplate.index(indxQryBuilder.build());
+		DocWriteRequest<?> req = createRequest(event);
+		if (req instanceof IndexRequest) {
+			IndexRequest indxReq = (IndexRequest) req;
+			logger.info("index: " + indxReq.index() + ", " + indxReq.type()
+					+ ", ESID: " + indxReq.id());
+			IndexResponse resp = searchTemplate.getClient().index(indxReq).actionGet();
+			res = resp.getId();
+			indexCatalog.indexCreated(indxReq.index());
+			// Overwritten document may leave its old histogram bucket
+			queryCache.invalidate(indxReq.index(), resp.getResult() == Result.CREATED ?
+					Collections.singletonList(indxReq.sourceAsMap()) : null);
 		}
 		return res;
 	}
 
+	/**
+	 * Method to convert entity into json source using entity mapper of
+	 * elastic template, so queued, bulk and direct writes index same source.
+	 * @param target
+	 * @return
+	 * @throws IOException
+	 */
+	private String toSource(Object target) throws IOException {
+		return searchTemplate.getResultsMapper().getEntityMapper().mapToString(target);
+	}
+
 	/**
 	 * Method to delete an index from elastic search indexes
 	 * @param event
@@ -105,6 +295,7 @@ public class SearchESEventReceiver extends ESEventReceiver {
 			String indxType = IESUtils.getIndexType(event.getEntity());
 			logger.info("Delete: " + indxName + ", " + indxType + ", " + id);
 			res = searchTemplate.delete(indxName, indxType, id);
+			queryCache.invalidate(indxName);
 		}
 		return res;
 	}
@@ -0,0 +1,105 @@
+package com.synectiks.search.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.filter.AssignableTypeFilter;
+import org.springframework.data.elasticsearch.annotations.Document;
+
+import com.synectiks.commons.interfaces.IESEntity;
+import com.synectiks.commons.utils.IUtils;
+
+/**
+ * Utility to find {@code IESEntity} classes of a package with their
+ * {@code Document} index name and type. Classes are read from class
+ * files metadata without loading them, from directories and jars.
+ * Abstract classes, interfaces and nested classes are listed too, same
+ * as classes found by the loading class finder it replaces.
+ * <br/>
+ * Build runs {@link #main(String[])} to write entities catalog into
+ * {@value #CATALOG}, which is read on startup.
+ * @author Rajesh Upadhyay
+ */
+public class EntityCatalogGenerator {
+
+	private static final Logger logger = LoggerFactory.getLogger(EntityCatalogGenerator.class);
+
+	public static final String CATALOG = "META-INF/search-entities.json";
+	public static final String PACKAGES = "packages";
+	public static final String ENTITIES = "entities";
+	public static final String CLS = "cls";
+	public static final String INDEX_NAME = "indexName";
+	public static final String INDEX_TYPE = "indexType";
+
+	/**
+	 * Method to find entity classes of package and sub packages.
+	 * @param pkg
+	 * @return list of maps with cls, indexName and indexType,
+	 * index keys are null if class has no {@code Document} annotation.
+	 */
+	public static List<Map<String, String>> scan(String pkg) {
+		ClassPathScanningCandidateComponentProvider scanner =
+				new ClassPathScanningCandidateComponentProvider(false) {
+			@Override
+			protected boolean isCandidateComponent(AnnotatedBeanDefinition def) {
+				// not only concrete top level classes which could be beans
+				return true;
+			}
+		};
+		scanner.addIncludeFilter(new AssignableTypeFilter(IESEntity.class));
+		List<Map<String, String>> entities = new ArrayList<>();
+		for (BeanDefinition def : scanner.findCandidateComponents(pkg)) {
+			Map<String, String> entity = new LinkedHashMap<>();
+			entity.put(CLS, def.getBeanClassName());
+			entity.put(INDEX_NAME, null);
+			entity.put(INDEX_TYPE, null);
+			if (def instanceof AnnotatedBeanDefinition) {
+				AnnotationMetadata meta = ((AnnotatedBeanDefinition) def).getMetadata();
+				Map<String, Object> doc = meta.getAnnotationAttributes(
+						Document.class.getName());
+				if (!IUtils.isNull(doc)) {
+					entity.put(INDEX_NAME, (String) doc.get("indexName"));
+					entity.put(INDEX_TYPE, (String) doc.get("type"));
+				}
+			}
+			entities.add(entity);
+		}
+		logger.info("Found " + entities.size() + " entities in " + pkg);
+		return entities;
+	}
+
+	/**
+	 * Write entities catalog of packages into output directory.
+	 * @param args output directory followed by packages names
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			throw new IllegalArgumentException(
+					"Usage: EntityCatalogGenerator <output-dir> <package>...");
+		}
+		List<String> pkgs = Arrays.asList(args).subList(1, args.length);
+		List<Map<String, String>> entities = new ArrayList<>();
+		for (String pkg : pkgs) {
+			entities.addAll(scan(pkg));
+		}
+		Map<String, Object> catalog = new LinkedHashMap<>();
+		catalog.put(PACKAGES, pkgs);
+		catalog.put(ENTITIES, entities);
+		File file = new File(args[0], CATALOG);
+		file.getParentFile().mkdirs();
+		IUtils.OBJECT_MAPPER.writerWithDefaultPrettyPrinter().writeValue(file, catalog);
+		logger.info("Entities catalog written into " + file);
+	}
+}
@@ -0,0 +1,191 @@
+package com.synectiks.search.utils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.core.mapping.ElasticsearchPersistentEntity;
+import org.springframework.data.elasticsearch.core.mapping.ElasticsearchPersistentProperty;
+import org.springframework.data.mapping.context.MappingContext;
+
+import com.synectiks.commons.utils.IUtils;
+
+/**
+ * Immutable metadata of an entity class i.e. index name, type and field
+ * types. Metadata is resolved once for each class and kept in registry,
+ * so requests and events use no reflection. Index name and type of
+ * document classes are taken from spring data persistent entity, so
+ * empty and SpEL index names resolve same as in elastic template,
+ * their metadata can not be resolved before mapping context is set.
+ * @author Rajesh Upadhyay
+ */
+public final class EntityMetadata {
+
+	private static final Logger logger = LoggerFactory.getLogger(EntityMetadata.class);
+
+	private static final Map<String, EntityMetadata> BY_NAME = new ConcurrentHashMap<>();
+	private static final ClassValue<EntityMetadata> BY_CLASS = new ClassValue<EntityMetadata>() {
+		@Override
+		protected EntityMetadata computeValue(Class<?> type) {
+			return new EntityMetadata(type);
+		}
+	};
+
+	private static volatile MappingContext<? extends ElasticsearchPersistentEntity<?>,
+			ElasticsearchPersistentProperty> mappingContext;
+
+	private final Class<?> clazz;
+	private final ElasticsearchPersistentEntity<?> entity;
+	private final String indexName;
+	private final String indexType;
+	private final Map<String, Class<?>> fieldTypes;
+
+	private EntityMetadata(Class<?> clazz) {
+		this.clazz = clazz;
+		Document doc = clazz.getAnnotation(Document.class);
+		if (!IUtils.isNull(doc) && IUtils.isNull(mappingContext)) {
+			// metadata is kept for ever, so never resolve it without index name
+			throw new IllegalStateException("Mapping context is not set to resolve "
+					+ clazz.getName());
+		}
+		this.entity = IUtils.isNull(doc) ? null
+				: mappingContext.getRequiredPersistentEntity(clazz);
+		if (!IUtils.isNull(doc)) {
+			this.indexName = doc.indexName();
+			// same default type as spring data
+			this.indexType = IUtils.isNullOrEmpty(doc.type()) ?
+					clazz.getSimpleName().toLowerCase() : doc.type();
+		} else {
+			this.indexName = null;
+			this.indexType = null;
+		}
+		this.fieldTypes = Collections.unmodifiableMap(findFieldTypes(clazz));
+	}
+
+	/**
+	 * Method to set mapping context of elastic template, call it before
+	 * metadata of any document class is resolved.
+	 * @param context
+	 */
+	public static void setMappingContext(MappingContext<? extends
+			ElasticsearchPersistentEntity<?>, ElasticsearchPersistentProperty> context) {
+		mappingContext = context;
+	}
+
+	/**
+	 * Method to register metadata of classes in advance.
+	 * @param classes fully qualified class names
+	 */
+	public static void register(Collection<String> classes) {
+		for (String cls : classes) {
+			try {
+				of(cls);
+			} catch (Throwable th) {
+				logger.warn("Failed to register " + cls + ": " + th.getMessage());
+			}
+		}
+		logger.info("Registered " + BY_NAME.size() + " entities metadata");
+	}
+
+	/**
+	 * Method to get metadata by class name.
+	 * @param cls fully qualified class name
+	 * @return metadata or null if class not found
+	 */
+	public static EntityMetadata of(String cls) {
+		if (IUtils.isNullOrEmpty(cls)) {
+			return null;
+		}
+		EntityMetadata meta = BY_NAME.get(cls);
+		if (IUtils.isNull(meta)) {
+			Class<?> clazz = IUtils.getClass(cls);
+			if (!IUtils.isNull(clazz)) {
+				meta = BY_NAME.computeIfAbsent(cls, k -> of(clazz));
+			}
+		}
+		return meta;
+	}
+
+	/**
+	 * Method to get metadata of class.
+	 * @param clazz
+	 * @return
+	 * @throws IllegalStateException if class is a document and mapping
+	 * context is not set yet
+	 */
+	public static EntityMetadata of(Class<?> clazz) {
+		return IUtils.isNull(clazz) ? null : BY_CLASS.get(clazz);
+	}
+
+	/**
+	 * Method to get metadata of entity object or class.
+	 * @param entity
+	 * @return
+	 */
+	public static EntityMetadata of(Object entity) {
+		if (entity instanceof Class) {
+			return of((Class<?>) entity);
+		}
+		return IUtils.isNull(entity) ? null : of(entity.getClass());
+	}
+
+	/**
+	 * Method to get class by name from registry.
+	 * @param cls
+	 * @return class or null
+	 */
+	public static Class<?> classOf(String cls) {
+		EntityMetadata meta = of(cls);
+		return IUtils.isNull(meta) ? null : meta.clazz;
+	}
+
+	public Class<?> getClazz() {
+		return clazz;
+	}
+
+	/**
+	 * @return index name of persistent entity, SpEL names are evaluated
+	 * on each call.
+	 */
+	public String getIndexName() {
+		return IUtils.isNull(entity) ? indexName : entity.getIndexName();
+	}
+
+	public String getIndexType() {
+		return IUtils.isNull(entity) ? indexType : entity.getIndexType();
+	}
+
+	/**
+	 * @return class and super classes fields names with their types
+	 */
+	public Map<String, Class<?>> getFieldTypes() {
+		return fieldTypes;
+	}
+
+	private static Map<String, Class<?>> findFieldTypes(Class<?> clazz) {
+		List<Class<?>> hierarchy = new ArrayList<>();
+		for (Class<?> c = clazz; !IUtils.isNull(c); c = c.getSuperclass()) {
+			hierarchy.add(0, c);
+		}
+		Map<String, Class<?>> map = new LinkedHashMap<>();
+		for (Class<?> c : hierarchy) {
+			for (Field f : c.getDeclaredFields()) {
+				int mod = f.getModifiers();
+				if ((Modifier.isPublic(mod) || Modifier.isProtected(mod)
+						|| Modifier.isPrivate(mod)) && !Modifier.isStatic(mod)) {
+					map.put(f.getName(), f.getType());
+				}
+			}
+		}
+		return map;
+	}
+}
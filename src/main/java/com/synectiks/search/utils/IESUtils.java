@@ -3,29 +3,41 @@
  */
 package com.synectiks.search.utils;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 import org.apache.lucene.search.join.ScoreMode;
 import org.codehaus.jettison.json.JSONException;
 import org.codehaus.jettison.json.JSONObject;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.Client;
 import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.index.query.QueryStringQueryBuilder;
 import org.elasticsearch.index.query.RangeQueryBuilder;
+import org.elasticsearch.index.reindex.BulkByScrollResponse;
+import org.elasticsearch.index.reindex.ScrollableHitSource.SearchFailure;
 import org.elasticsearch.search.aggregations.AbstractAggregationBuilder;
+import org.elasticsearch.search.sort.SortBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.elasticsearch.annotations.Document;
 import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
 import org.springframework.data.elasticsearch.core.query.SearchQuery;
+import org.springframework.data.elasticsearch.core.query.SourceFilter;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.synectiks.commons.constants.IConsts;
 import com.synectiks.commons.entities.dynamodb.Entity;
 import com.synectiks.commons.entities.search.ESEvent;
@@ -40,6 +52,19 @@ public interface IESUtils {
 
 	Logger logger = LoggerFactory.getLogger(IESUtils.class);
 
+	String KEYWORD_SUFFIX = ".keyword";
+	// Keyword sub field of strings with lowercase normalizer, added to
+	// indices by IndexTemplate to lookup keys ignoring case
+	String NORMALIZED_FIELD = "normalized";
+	String NORMALIZED_SUFFIX = "." + NORMALIZED_FIELD;
+	String KEY_NORMALIZER = "key_normalizer";
+	// Keys of count at least result
+	String COUNT = "count";
+	String TRUNCATED = "truncated";
+	// Mapper to write json with sorted keys, used to create cache keys
+	ObjectMapper CANONICAL_MAPPER = new ObjectMapper()
+			.configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
 	/**
 	 * Enum to hold elastic search bool query type
 	 * @author Rajesh
@@ -54,7 +79,7 @@ public interface IESUtils {
 	/**
 	 * Method to get id from entity
 	 * @param entity
-	 * @return string id
+	 * @return string id, null if entity is not an {@code Entity}
 	 */
 	static String getESID(Object entity) {
 		if (!IUtils.isNull(entity) && entity instanceof Entity) {
@@ -65,46 +90,36 @@ public interface IESUtils {
 
 	/**
 	 * Get index name from entity annotation
-	 * @param entity
+	 * @param entity entity object or class
 	 * @return
 	 */
 	static String getIndexName(Object entity) {
-		if (!IUtils.isNull(entity)) {
-			Document doc = entity.getClass().getAnnotation(Document.class);
-			if (!IUtils.isNull(doc)) {
-				return doc.indexName();
-			}
-		}
-		return null;
+		EntityMetadata meta = EntityMetadata.of(entity);
+		return IUtils.isNull(meta) ? null : meta.getIndexName();
 	}
 
 	/**
 	 * Return index type from entity annotation.
-	 * @param entity
+	 * @param entity entity object or class
 	 * @return
 	 */
 	static String getIndexType(Object entity) {
-		if (!IUtils.isNull(entity)) {
-			Document doc = entity.getClass().getAnnotation(Document.class);
-			if (!IUtils.isNull(doc)) {
-				return doc.type();
-			}
-		}
-		return null;
+		EntityMetadata meta = EntityMetadata.of(entity);
+		return IUtils.isNull(meta) ? null : meta.getIndexType();
 	}
 
 	/**
 	 * Method to create {@code SearchQuery} object for {@code QueryBuilder}.
 	 * To search in specified indices and with {@code Pageable} page size.
-	 * We can also pass aggregation builder to add into current seaarch.
+	 * We can also pass aggregation builders to add into current seaarch.
 	 * @param qBuilder {@code BoolQueryBuilder} object
 	 * @param indxName comma separated names of indices to searc
 	 * @param pageReq {@code PageRequest} object with page number and size
-	 * @param aggre {@code AbstractAggregationBuilder} object
+	 * @param aggres list of {@code AbstractAggregationBuilder} objects
 	 * @return {@code SearchQuery} instance
 	 */
-	static SearchQuery getNativeSearchQuery(QueryBuilder qBuilder,
-			String indxName, Pageable pageReq, AbstractAggregationBuilder<?> aggre) {
+	static SearchQuery getNativeSearchQuery(QueryBuilder qBuilder, String indxName,
+			Pageable pageReq, List<AbstractAggregationBuilder<?>> aggres) {
 		NativeSearchQueryBuilder sQryBuilder = new NativeSearchQueryBuilder();
 		if (!IUtils.isNull(qBuilder)) {
 			sQryBuilder.withQuery(qBuilder);
@@ -115,13 +130,92 @@ public interface IESUtils {
 		if (!IUtils.isNullOrEmpty(indxName)) {
 			sQryBuilder.withIndices(indxName);
 		}
-		if (!IUtils.isNull(aggre)) {
-			sQryBuilder.addAggregation(aggre);
+		if (!IUtils.isNull(aggres)) {
+			for (AbstractAggregationBuilder<?> aggre : aggres) {
+				sQryBuilder.addAggregation(aggre);
+			}
 		}
 		logger.info("Final Query: " + sQryBuilder.toString());
 		return sQryBuilder.build();
 	}
 
+	/**
+	 * Method to create elastic {@code SearchRequestBuilder} from
+	 * spring data {@code SearchQuery}, to execute query using client.
+	 * @param client
+	 * @param sQry
+	 * @return
+	 */
+	static SearchRequestBuilder prepareSearch(Client client, SearchQuery sQry) {
+		SearchRequestBuilder builder = client.prepareSearch(
+				sQry.getIndices().toArray(new String[sQry.getIndices().size()]));
+		if (!IUtils.isNull(sQry.getTypes()) && !sQry.getTypes().isEmpty()) {
+			builder.setTypes(sQry.getTypes().toArray(new String[sQry.getTypes().size()]));
+		}
+		if (!IUtils.isNull(sQry.getQuery())) {
+			builder.setQuery(sQry.getQuery());
+		}
+		if (!IUtils.isNull(sQry.getFilter())) {
+			builder.setPostFilter(sQry.getFilter());
+		}
+		Pageable pageable = sQry.getPageable();
+		if (!IUtils.isNull(pageable) && pageable.isPaged()) {
+			builder.setFrom((int) pageable.getOffset()).setSize(pageable.getPageSize());
+		}
+		if (!IUtils.isNull(sQry.getElasticsearchSorts())) {
+			for (SortBuilder<?> sort : sQry.getElasticsearchSorts()) {
+				builder.addSort(sort);
+			}
+		}
+		if (!IUtils.isNull(sQry.getAggregations())) {
+			for (AbstractAggregationBuilder<?> aggre : sQry.getAggregations()) {
+				builder.addAggregation(aggre);
+			}
+		}
+		SourceFilter srcFilter = sQry.getSourceFilter();
+		if (!IUtils.isNull(srcFilter)) {
+			builder.setFetchSource(srcFilter.getIncludes(), srcFilter.getExcludes());
+		}
+		return builder;
+	}
+
+	/**
+	 * Method to create request to count documents up to a limit, query
+	 * is run in filter context and each shard stops collecting after
+	 * {@code atLeast} documents.
+	 * @param client
+	 * @param sQry
+	 * @param atLeast number of documents to count, 1 to check existence
+	 * @return
+	 */
+	static SearchRequestBuilder prepareCountAtLeast(Client client, SearchQuery sQry,
+			int atLeast) {
+		SearchRequestBuilder builder = prepareSearch(client, sQry);
+		if (!IUtils.isNull(sQry.getQuery())) {
+			builder.setQuery(QueryBuilders.constantScoreQuery(sQry.getQuery()));
+		}
+		return builder.setFrom(0).setSize(0).setTerminateAfter(atLeast);
+	}
+
+	/**
+	 * Method to create count at least result from response. Each shard
+	 * stops after {@code atLeast} documents, so total hits of all shards
+	 * is clamped to the limit.
+	 * @param res response of {@link #prepareCountAtLeast(Client, SearchQuery, int)}
+	 * @param atLeast number of documents requested to count
+	 * @return map with count and truncated keys, truncated is true
+	 * if limit is reached and there could be more documents.
+	 */
+	static Map<String, Object> getCountAtLeast(SearchResponse res, int atLeast) {
+		long total = res.getHits().getTotalHits();
+		boolean truncated = total >= atLeast
+				|| Boolean.TRUE.equals(res.isTerminatedEarly());
+		Map<String, Object> map = new LinkedHashMap<>();
+		map.put(COUNT, truncated ? Math.min(total, atLeast) : total);
+		map.put(TRUNCATED, truncated);
+		return map;
+	}
+
 	/**
 	 * Method to check if we are scrolling result further {@link Index#}
 	 * @param page
@@ -365,6 +459,100 @@ public interface IESUtils {
 		return qb;
 	}
 
+	/**
+	 * Method to create a query to lookup documents by key and value.
+	 * For case sensitive search it creates term query on field and its
+	 * keyword sub field, else a term query with lowercase value on the
+	 * normalized keyword sub field. So only exact matches are selected,
+	 * which is required by update and delete by query, and lookup cost
+	 * does not depend on index size. Values longer than keyword
+	 * {@code ignore_above} are not matched.
+	 * @param key field name
+	 * @param val value to search
+	 * @param ignoreCase set true only if key has normalized sub field,
+	 * see {@code FieldCatalog#isNormalized(String, String)}
+	 * @return {@code QueryBuilder} object
+	 */
+	static QueryBuilder getKeyQueryBuilder(String key, String val, boolean ignoreCase) {
+		if (ignoreCase) {
+			// lowercase filter of normalizer lowercases with root locale
+			return QueryBuilders.termQuery(key + NORMALIZED_SUFFIX,
+					IUtils.isNull(val) ? null : val.toLowerCase(Locale.ROOT));
+		}
+		return QueryBuilders.boolQuery()
+				.should(QueryBuilders.termQuery(key, val))
+				.should(QueryBuilders.termQuery(key + KEYWORD_SUFFIX, val))
+				.minimumShouldMatch(1);
+	}
+
+	/**
+	 * Method to create summary of by query operation response.
+	 * @param response
+	 * @return map of counts and failure messages
+	 */
+	static Map<String, Object> getBulkByScrollSummary(BulkByScrollResponse response) {
+		Map<String, Object> res = new LinkedHashMap<>();
+		if (!IUtils.isNull(response)) {
+			res.put("total", response.getTotal());
+			res.put("updated", response.getUpdated());
+			res.put("deleted", response.getDeleted());
+			res.put("noops", response.getNoops());
+			res.put("batches", response.getBatches());
+			res.put("versionConflicts", response.getVersionConflicts());
+			res.put("timedOut", response.isTimedOut());
+			res.put("tookMs", response.getTook().millis());
+			List<String> failures = new ArrayList<>();
+			for (BulkItemResponse.Failure failure : response.getBulkFailures()) {
+				failures.add(failure.getId() + ": " + failure.getMessage());
+			}
+			for (SearchFailure failure : response.getSearchFailures()) {
+				failures.add(String.valueOf(failure.getReason()));
+			}
+			res.put("failed", failures.size());
+			res.put("failures", failures);
+		}
+		return res;
+	}
+
+	/**
+	 * Method to normalize json string by sorting object keys and
+	 * removing white spaces, so same query creates same string.
+	 * @param json
+	 * @return canonical json or trimmed input if it is not a json
+	 */
+	static String getCanonicalJson(String json) {
+		if (IUtils.isNullOrEmpty(json)) {
+			return "";
+		}
+		try {
+			Object obj = CANONICAL_MAPPER.readValue(json, Object.class);
+			return CANONICAL_MAPPER.writeValueAsString(obj);
+		} catch (IOException e) {
+			return json.trim();
+		}
+	}
+
+	/**
+	 * Method to count documents matched by query with terminate after
+	 * limit, elastic stops counting on each shard once limit is reached.
+	 * @param client
+	 * @param index
+	 * @param type
+	 * @param query
+	 * @param atLeast documents count to stop at
+	 * @return map with count and truncated flag
+	 */
+	static Map<String, Object> countAtLeast(Client client, String index,
+			String type, QueryBuilder query, int atLeast) {
+		SearchRequestBuilder builder = client.prepareSearch(index)
+				.setQuery(QueryBuilders.constantScoreQuery(query))
+				.setSize(0).setTerminateAfter(atLeast);
+		if (!IUtils.isNullOrEmpty(type)) {
+			builder.setTypes(type);
+		}
+		return getCountAtLeast(builder.execute().actionGet(), atLeast);
+	}
+
 	/**
 	 * Method to generate new event object form params
 	 * @param cls
@@ -376,16 +564,28 @@ public interface IESUtils {
 	static ESEvent createEvent(String cls, String eventType, String entity) throws Exception {
 		ESEvent event = null;
 		if (!IUtils.isNullOrEmpty(cls)) {
-			Class<?> clazz = IUtils.getClass(cls);
-			Object obj = IUtils.getObjectFromValue(entity, clazz);
-			if (IUtils.isNull(obj)) {
-				throw new Exception("Failed to parse entity as object of " + cls);
-			}
-			event = new ESEvent(EventType.valueOf(eventType), obj);
+			event = createEvent(EntityMetadata.classOf(cls), EventType.valueOf(eventType), entity);
 		}
 		return event;
 	}
 
+	/**
+	 * Method to generate new event object for already resolved class
+	 * @param clazz
+	 * @param eventType
+	 * @param entity
+	 * @return
+	 * @throws Exception
+	 */
+	static ESEvent createEvent(Class<?> clazz, EventType eventType, String entity)
+			throws Exception {
+		Object obj = IUtils.getObjectFromValue(entity, clazz);
+		if (IUtils.isNull(obj)) {
+			throw new Exception("Failed to parse entity as object of " + clazz);
+		}
+		return new ESEvent(eventType, obj);
+	}
+
 	/**
 	 * Method to iterate map object and extract keys including nested.
 	 * @param mappings
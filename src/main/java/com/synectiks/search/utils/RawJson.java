@@ -0,0 +1,139 @@
+package com.synectiks.search.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import org.elasticsearch.common.bytes.BytesReference;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+
+/**
+ * Json value backed by elastic document source bytes. Jackson writes
+ * the bytes as raw value into response, so source is neither parsed
+ * nor escaped as a string.
+ * @author Rajesh Upadhyay
+ */
+public class RawJson implements JsonSerializable, SerializableString {
+
+	private final BytesReference source;
+	private byte[] bytes;
+	private SerializedString text;
+
+	public RawJson(BytesReference source) {
+		this.source = source;
+	}
+
+	@Override
+	public void serialize(JsonGenerator gen, SerializerProvider serializers)
+			throws IOException {
+		gen.writeRawValue(this);
+	}
+
+	@Override
+	public void serializeWithType(JsonGenerator gen, SerializerProvider serializers,
+			TypeSerializer typeSer) throws IOException {
+		serialize(gen, serializers);
+	}
+
+	@Override
+	public byte[] asUnquotedUTF8() {
+		if (bytes == null) {
+			// no copy if source is a complete byte array
+			bytes = BytesReference.toBytes(source);
+		}
+		return bytes;
+	}
+
+	@Override
+	public int writeUnquotedUTF8(OutputStream out) throws IOException {
+		source.writeTo(out);
+		return source.length();
+	}
+
+	@Override
+	public int appendUnquotedUTF8(byte[] buffer, int offset) {
+		byte[] src = asUnquotedUTF8();
+		if (offset + src.length > buffer.length) {
+			return -1;
+		}
+		System.arraycopy(src, 0, buffer, offset, src.length);
+		return src.length;
+	}
+
+	@Override
+	public int putUnquotedUTF8(ByteBuffer buffer) throws IOException {
+		byte[] src = asUnquotedUTF8();
+		if (src.length > buffer.remaining()) {
+			return -1;
+		}
+		buffer.put(src);
+		return src.length;
+	}
+
+	@Override
+	public String getValue() {
+		return getText().getValue();
+	}
+
+	@Override
+	public int charLength() {
+		return getText().charLength();
+	}
+
+	@Override
+	public char[] asQuotedChars() {
+		return getText().asQuotedChars();
+	}
+
+	@Override
+	public byte[] asQuotedUTF8() {
+		return getText().asQuotedUTF8();
+	}
+
+	@Override
+	public int appendQuotedUTF8(byte[] buffer, int offset) {
+		return getText().appendQuotedUTF8(buffer, offset);
+	}
+
+	@Override
+	public int appendQuoted(char[] buffer, int offset) {
+		return getText().appendQuoted(buffer, offset);
+	}
+
+	@Override
+	public int appendUnquoted(char[] buffer, int offset) {
+		return getText().appendUnquoted(buffer, offset);
+	}
+
+	@Override
+	public int writeQuotedUTF8(OutputStream out) throws IOException {
+		return getText().writeQuotedUTF8(out);
+	}
+
+	@Override
+	public int putQuotedUTF8(ByteBuffer buffer) throws IOException {
+		return getText().putQuotedUTF8(buffer);
+	}
+
+	/**
+	 * Char based writers need the source as string, it is created lazily.
+	 * @return
+	 */
+	private SerializedString getText() {
+		if (text == null) {
+			text = new SerializedString(source.utf8ToString());
+		}
+		return text;
+	}
+
+	@Override
+	public String toString() {
+		return getValue();
+	}
+}
@@ -0,0 +1,37 @@
+package com.synectiks.search.manager;
+
+import java.util.Collections;
+
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the {@link BulkManager} request validation.
+ */
+public class BulkManagerTest {
+
+    @Test
+    public void testValidRequestHasNoError() {
+        IndexRequest req = new IndexRequest("person", "person", "1")
+            .source(Collections.singletonMap("name", "x"));
+
+        assertThat(BulkManager.validate(req)).isNull();
+    }
+
+    @Test
+    public void testDeleteWithoutIdIsInvalid() {
+        assertThat(BulkManager.validate(new DeleteRequest("person", "person", null)))
+            .contains("id is missing");
+    }
+
+    @Test
+    public void testRequestWithoutIndexIsInvalid() {
+        IndexRequest req = new IndexRequest(null, "person", "1")
+            .source(Collections.singletonMap("name", "x"));
+
+        assertThat(BulkManager.validate(req)).contains("index is missing");
+    }
+}
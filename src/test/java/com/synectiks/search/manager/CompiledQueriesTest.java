@@ -0,0 +1,42 @@
+package com.synectiks.search.manager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.elasticsearch.core.query.SearchQuery;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.synectiks.search.config.ApplicationProperties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test class for the {@link CompiledQueries} cache.
+ */
+public class CompiledQueriesTest {
+
+    private CompiledQueries compiledQueries;
+
+    @BeforeEach
+    public void setup() {
+        compiledQueries = new CompiledQueries();
+        ReflectionTestUtils.setField(compiledQueries, "props", new ApplicationProperties());
+        compiledQueries.init();
+    }
+
+    @Test
+    public void testSameFiltersShareCompiledQueryAcrossClassesAndPages() {
+        SearchQuery first = compiledQueries.filters(null, "{\"and\": []}", 0, 10, null);
+        SearchQuery second = compiledQueries.filters(String.class.getName(), "{ \"and\":[] }", 2, 5, null);
+
+        assertThat(second.getQuery()).isSameAs(first.getQuery());
+        assertThat(first.getPageable().getPageSize()).isEqualTo(10);
+        assertThat(second.getPageable().getPageSize()).isEqualTo(5);
+    }
+
+    @Test
+    public void testInvalidFiltersAreRejected() {
+        assertThatThrownBy(() -> compiledQueries.filters(null, "{\"and\": ", 0, 10, null))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,38 @@
+package com.synectiks.search.manager;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.synectiks.commons.utils.IUtils;
+import com.synectiks.search.manager.FieldCatalog.Fields;
+import com.synectiks.search.utils.IESUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the {@link FieldCatalog} fields of mappings.
+ */
+public class FieldCatalogTest {
+
+    @Test
+    public void testOnlyKeysWithKeyNormalizerAreNormalized() throws Exception {
+        Fields fields = new Fields(mapping("{\"person\": {\"properties\": {"
+            + "\"city\": {\"type\": \"text\", \"fields\": {"
+            + "\"keyword\": {\"type\": \"keyword\"}, "
+            + "\"normalized\": {\"type\": \"keyword\", \"normalizer\": \"" + IESUtils.KEY_NORMALIZER + "\"}}}, "
+            + "\"name\": {\"type\": \"text\", \"fields\": {\"keyword\": {\"type\": \"keyword\"}}}, "
+            + "\"address\": {\"properties\": {\"zip\": {\"type\": \"keyword\", \"fields\": {"
+            + "\"normalized\": {\"type\": \"keyword\", \"normalizer\": \"" + IESUtils.KEY_NORMALIZER + "\"}}}}}}}}"));
+
+        assertThat(fields.isNormalized("city")).isTrue();
+        assertThat(fields.isNormalized("address.zip")).isTrue();
+        assertThat(fields.isNormalized("name")).isFalse();
+        assertThat(fields.getNames()).containsExactly("city", "name", "address", "address.zip");
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static Map mapping(String json) throws Exception {
+        return IUtils.OBJECT_MAPPER.readValue(json, Map.class);
+    }
+}
@@ -0,0 +1,141 @@
+package com.synectiks.search.manager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.assertj.core.api.Assertions;
+import org.assertj.core.data.MapEntry;
+import org.elasticsearch.search.aggregations.bucket.histogram.Histogram;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.synectiks.search.config.ApplicationProperties;
+import com.synectiks.search.queries.Aggregator;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for the {@link HistogramCache} merge and reopen of buckets.
+ */
+public class HistogramCacheTest {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+    private static final long D1 = new DateTime(2020, 1, 1, 0, 0, DateTimeZone.UTC).getMillis();
+    private static final long D2 = D1 + DAY;
+    private static final long D3 = D2 + DAY;
+    private static final long D4 = D3 + DAY;
+
+    private HistogramCache cache;
+    private Aggregator aggre;
+    private List<Long> scans;
+
+    @BeforeEach
+    public void setup() {
+        cache = new HistogramCache();
+        ReflectionTestUtils.setField(cache, "props", new ApplicationProperties());
+        ReflectionTestUtils.setField(cache, "registry", new SimpleMeterRegistry());
+        cache.init();
+        aggre = new Aggregator();
+        aggre.setAggreType("date_histogram");
+        aggre.setFieldName("created");
+        aggre.setInterval("1d");
+        scans = new ArrayList<>();
+    }
+
+    @Test
+    public void testOpenBucketIsMergedWithClosedBuckets() {
+        Map<String, Object> first = cache.get("person", "q", aggre,
+            loader(histogram(D1, 3, D2, 5, D3, 1)));
+        Map<String, Object> second = cache.get("person", "q", aggre,
+            loader(histogram(D3, 2, D4, 1)));
+
+        assertThat(first).containsExactly(entry(D1, 3), entry(D2, 5), entry(D3, 1));
+        assertThat(second).containsExactly(entry(D1, 3), entry(D2, 5), entry(D3, 2), entry(D4, 1));
+        assertThat(scans).containsExactly(null, D3);
+    }
+
+    @Test
+    public void testCreatedDocumentReopensBucketsFromItsDate() {
+        cache.get("person", "q", aggre, loader(histogram(D1, 3, D2, 5, D3, 1)));
+
+        cache.invalidate("person", Collections.singletonList(
+            Collections.singletonMap("created", new DateTime(D2 + 1000, DateTimeZone.UTC).toString())));
+        Map<String, Object> res = cache.get("person", "q", aggre,
+            loader(histogram(D2, 6, D3, 1)));
+
+        assertThat(res).containsExactly(entry(D1, 3), entry(D2, 6), entry(D3, 1));
+        assertThat(scans).containsExactly(null, D2);
+    }
+
+    @Test
+    public void testCreatedDocumentInOpenRangeKeepsClosedBuckets() {
+        cache.get("person", "q", aggre, loader(histogram(D1, 3, D2, 5, D3, 1)));
+
+        cache.invalidate("person", Collections.singletonList(
+            Collections.singletonMap("created", D4)));
+        cache.get("person", "q", aggre, loader(histogram(D3, 1, D4, 1)));
+
+        assertThat(scans).containsExactly(null, D3);
+    }
+
+    @Test
+    public void testOtherWritesDropHistogramsOfIndex() {
+        cache.get("person", "q", aggre, loader(histogram(D1, 3, D2, 5, D3, 1)));
+        cache.get("order", "q", aggre, loader(histogram(D1, 1, D2, 1)));
+
+        cache.invalidate("person", null);
+        cache.get("person", "q", aggre, loader(histogram(D1, 2, D2, 5, D3, 1)));
+        cache.get("order", "q", aggre, loader(histogram(D2, 1)));
+
+        assertThat(scans).containsExactly(null, null, null, D2);
+    }
+
+    @Test
+    public void testRecentBucketsStayOpen() {
+        long now = System.currentTimeMillis();
+        long hour = 60 * 60 * 1000L;
+        aggre.setInterval("1h");
+
+        cache.get("person", "q", aggre, loader(histogram(now - 2 * hour, 1, now - hour, 1, now - 1000, 1)));
+        cache.get("person", "q", aggre, loader(histogram(now - hour, 1, now - 1000, 2)));
+
+        // bucket of scan time less staleness stays open with newer ones
+        assertThat(scans).containsExactly(null, now - hour);
+    }
+
+    private Function<Long, Histogram> loader(Histogram hist) {
+        return from -> {
+            scans.add(from);
+            return hist;
+        };
+    }
+
+    private static MapEntry<String, Object> entry(long key, long count) {
+        return Assertions.entry(String.valueOf(key), (Object) count);
+    }
+
+    private static Histogram histogram(long... keyCounts) {
+        List<Histogram.Bucket> buckets = new ArrayList<>();
+        for (int i = 0; i < keyCounts.length; i += 2) {
+            Histogram.Bucket bucket = mock(Histogram.Bucket.class);
+            when(bucket.getKey()).thenReturn(new DateTime(keyCounts[i], DateTimeZone.UTC));
+            when(bucket.getKeyAsString()).thenReturn(String.valueOf(keyCounts[i]));
+            when(bucket.getDocCount()).thenReturn(keyCounts[i + 1]);
+            buckets.add(bucket);
+        }
+        Histogram hist = mock(Histogram.class);
+        doReturn(buckets).when(hist).getBuckets();
+        return hist;
+    }
+}
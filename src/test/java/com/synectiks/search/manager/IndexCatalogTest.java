@@ -0,0 +1,88 @@
+package com.synectiks.search.manager;
+
+import java.util.Collections;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.elasticsearch.core.ElasticsearchTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for the {@link IndexCatalog} existence checks.
+ */
+public class IndexCatalogTest {
+
+    private ElasticsearchTemplate esTemplate;
+    private FieldCatalog fieldCatalog;
+    private IndexCatalog indexCatalog;
+
+    @BeforeEach
+    public void setup() {
+        esTemplate = mock(ElasticsearchTemplate.class);
+        fieldCatalog = mock(FieldCatalog.class);
+        indexCatalog = new IndexCatalog();
+        ReflectionTestUtils.setField(indexCatalog, "esTemplate", esTemplate);
+        ReflectionTestUtils.setField(indexCatalog, "fieldCatalog", fieldCatalog);
+        ReflectionTestUtils.setField(indexCatalog, "indices", Collections.emptyMap());
+    }
+
+    @Test
+    public void testMissIsCheckedInElasticAndFoundIndexIsCached() {
+        when(esTemplate.indexExists("person")).thenReturn(true);
+
+        assertThat(indexCatalog.exists("person")).isTrue();
+        assertThat(indexCatalog.exists("person")).isTrue();
+
+        verify(esTemplate, times(1)).indexExists("person");
+        assertThat(indexCatalog.getIndexNames()).containsExactly("person");
+    }
+
+    @Test
+    public void testMissingIndexIsCachedUntilCreated() {
+        when(esTemplate.indexExists("person")).thenReturn(false);
+
+        assertThat(indexCatalog.exists("person")).isFalse();
+        assertThat(indexCatalog.exists("person")).isFalse();
+        verify(esTemplate, times(1)).indexExists("person");
+
+        indexCatalog.indexCreated("person");
+
+        assertThat(indexCatalog.exists("person")).isTrue();
+        verify(esTemplate, times(1)).indexExists("person");
+    }
+
+    @Test
+    public void testCatalogHitIsTrusted() {
+        indexCatalog.indexCreated("person");
+
+        assertThat(indexCatalog.exists("person")).isTrue();
+
+        verify(esTemplate, never()).indexExists("person");
+    }
+
+    @Test
+    public void testFieldsAreDroppedOnlyWhenIndexIsAddedOrDeleted() {
+        indexCatalog.indexCreated("person");
+        indexCatalog.indexCreated("person");
+        indexCatalog.indexDeleted("person");
+
+        verify(fieldCatalog, times(2)).invalidate("person");
+    }
+
+    @Test
+    public void testDeletedIndexIsCheckedAgain() {
+        indexCatalog.indexCreated("person");
+        indexCatalog.indexDeleted("person");
+
+        assertThat(indexCatalog.exists("person")).isFalse();
+
+        verify(esTemplate).indexExists("person");
+    }
+}
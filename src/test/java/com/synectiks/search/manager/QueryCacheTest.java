@@ -0,0 +1,114 @@
+package com.synectiks.search.manager;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.synectiks.search.config.ApplicationProperties;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Test class for the {@link QueryCache} loading and invalidation.
+ */
+public class QueryCacheTest {
+
+    private HistogramCache histograms;
+    private QueryCache queryCache;
+
+    @BeforeEach
+    public void setup() {
+        histograms = mock(HistogramCache.class);
+        queryCache = new QueryCache();
+        ReflectionTestUtils.setField(queryCache, "props", new ApplicationProperties());
+        ReflectionTestUtils.setField(queryCache, "registry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(queryCache, "histograms", histograms);
+        RequestCoalescer coalescer = new RequestCoalescer();
+        ReflectionTestUtils.setField(coalescer, "registry", new SimpleMeterRegistry());
+        coalescer.init();
+        ReflectionTestUtils.setField(queryCache, "coalescer", coalescer);
+        queryCache.init();
+    }
+
+    @Test
+    public void testSameQueryIsLoadedOnce() {
+        AtomicInteger loads = new AtomicInteger();
+
+        queryCache.get("person", QueryCache.key("count", "{\"a\": 1, \"b\": 2}"), loads::incrementAndGet);
+        Object res = queryCache.get("person", QueryCache.key("count", "{\"b\":2,\"a\":1}"), loads::incrementAndGet);
+
+        assertThat(res).isEqualTo(1);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    public void testInvalidateDropsOnlyResultsOfIndex() {
+        AtomicInteger loads = new AtomicInteger();
+        queryCache.get("person", "q", loads::incrementAndGet);
+        queryCache.get("order", "q", loads::incrementAndGet);
+
+        queryCache.invalidate("person");
+
+        assertThat((Object) queryCache.get("person", "q", loads::incrementAndGet)).isEqualTo(3);
+        assertThat((Object) queryCache.get("order", "q", loads::incrementAndGet)).isEqualTo(2);
+        verify(histograms).invalidate("person", null);
+    }
+
+    @Test
+    public void testInvalidatePassesCreatedDocumentsToHistograms() {
+        List<Map<String, Object>> created = Collections.singletonList(
+            Collections.singletonMap("createdAt", "2026-01-01T00:00:00Z"));
+
+        queryCache.invalidate("person", created);
+
+        verify(histograms).invalidate("person", created);
+    }
+
+    @Test
+    public void testAsyncResultIsCachedOnceCompleted() {
+        AtomicInteger loads = new AtomicInteger();
+        CompletableFuture<Integer> pending = new CompletableFuture<>();
+
+        CompletableFuture<Integer> first = queryCache.getAsync("person", "q", () -> {
+            loads.incrementAndGet();
+            return pending;
+        });
+        pending.complete(7);
+        CompletableFuture<Integer> second = queryCache.getAsync("person", "q", () -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture(8);
+        });
+
+        assertThat(first.join()).isEqualTo(7);
+        assertThat(second.join()).isEqualTo(7);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    public void testCountKeysOfDifferentClassesAreDifferent() {
+        assertThat(QueryCache.key("count", "com.a.Person", "{}"))
+            .isNotEqualTo(QueryCache.key("count", "com.a.Order", "{}"));
+    }
+
+    @Test
+    public void testResultIsWeighedByJsonSize() {
+        int one = QueryCache.CachedResult.weigh(Collections.singletonList("abcd"));
+        int three = QueryCache.CachedResult.weigh(Arrays.asList("abcd", "efgh", "ijkl"));
+
+        // each more item adds ,"efgh" i.e. 7 bytes
+        assertThat(three - one).isEqualTo(14);
+        assertThat(QueryCache.CachedResult.weigh(Collections.emptyList()))
+            .isEqualTo(QueryCache.CachedResult.weigh(Collections.singletonList("")) - 2);
+    }
+}
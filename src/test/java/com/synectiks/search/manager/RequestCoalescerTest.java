@@ -0,0 +1,140 @@
+package com.synectiks.search.manager;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test class for the {@link RequestCoalescer}.
+ */
+public class RequestCoalescerTest {
+
+    private MeterRegistry registry;
+    private RequestCoalescer coalescer;
+    private ExecutorService pool;
+
+    @BeforeEach
+    public void setup() {
+        registry = new SimpleMeterRegistry();
+        coalescer = new RequestCoalescer();
+        ReflectionTestUtils.setField(coalescer, "registry", registry);
+        coalescer.init();
+        pool = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    public void destroy() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentCallsShareOneExecution() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<Long> first = pool.submit(() -> coalescer.execute("person", "count|{}", () -> {
+            calls.incrementAndGet();
+            started.countDown();
+            await(release);
+            return 5L;
+        }));
+        started.await(5, TimeUnit.SECONDS);
+        Future<Long> second = pool.submit(() -> coalescer.execute("person", "count|{}", () -> {
+            calls.incrementAndGet();
+            return 6L;
+        }));
+        waitForSaved("count", 1);
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(5L);
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo(5L);
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    public void testCompletedCallIsExecutedAgain() {
+        AtomicInteger calls = new AtomicInteger();
+
+        coalescer.execute("person", "count|{}", calls::incrementAndGet);
+        coalescer.execute("person", "count|{}", calls::incrementAndGet);
+
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    public void testFailedCallIsRethrownAndNotKept() {
+        assertThatThrownBy(() -> coalescer.execute("person", "count|{}", () -> {
+            throw new IllegalStateException("elastic down");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat((Object) coalescer.execute("person", "count|{}", () -> 1)).isEqualTo(1);
+    }
+
+    @Test
+    public void testCancelledJoinerDoesNotCancelSharedCall() {
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<Long> pending = new CompletableFuture<>();
+
+        CompletableFuture<Long> first = coalescer.executeAsync("person", "count|{}", () -> {
+            calls.incrementAndGet();
+            return pending;
+        });
+        CompletableFuture<Long> second = coalescer.executeAsync("person", "count|{}", () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture(6L);
+        });
+        second.cancel(true);
+        pending.complete(5L);
+
+        assertThat(calls).hasValue(1);
+        assertThat(second).isCancelled();
+        assertThat(first.join()).isEqualTo(5L);
+        assertThat(pending).isNotCancelled();
+    }
+
+    @Test
+    public void testCancelledLeaderDoesNotCancelJoiners() {
+        CompletableFuture<Long> pending = new CompletableFuture<>();
+
+        CompletableFuture<Long> first = coalescer.executeAsync("person", "count|{}", () -> pending);
+        CompletableFuture<Long> second = coalescer.executeAsync("person", "count|{}",
+            () -> CompletableFuture.completedFuture(6L));
+        first.cancel(true);
+        pending.complete(5L);
+
+        assertThat(first).isCancelled();
+        assertThat(second.join()).isEqualTo(5L);
+    }
+
+    private void waitForSaved(String kind, double count) throws InterruptedException {
+        long until = System.currentTimeMillis() + 5000;
+        while (registry.counter("search.coalescer.saved", "kind", kind).count() < count
+            && System.currentTimeMillis() < until) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
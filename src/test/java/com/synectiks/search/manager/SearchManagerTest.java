@@ -0,0 +1,255 @@
+package com.synectiks.search.manager;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.elasticsearch.action.get.MultiGetItemResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.MatchQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.query.TermQueryBuilder;
+import org.elasticsearch.index.reindex.DeleteByQueryAction;
+import org.elasticsearch.index.reindex.DeleteByQueryRequest;
+import org.elasticsearch.index.reindex.UpdateByQueryAction;
+import org.elasticsearch.index.reindex.UpdateByQueryRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.elasticsearch.core.ElasticsearchTemplate;
+import org.springframework.data.elasticsearch.core.ScrolledPage;
+import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
+import org.springframework.data.elasticsearch.core.query.SearchQuery;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.synectiks.search.manager.BulkManager.BulkSession;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for the {@link SearchManager} query builders.
+ */
+public class SearchManagerTest {
+
+    private ElasticsearchTemplate esTemplate;
+    private BulkSession session;
+    private QueryCache queryCache;
+    private FieldCatalog fieldCatalog;
+    private Client client;
+    private SearchManager searchManager;
+
+    @BeforeEach
+    public void setup() {
+        esTemplate = mock(ElasticsearchTemplate.class);
+        session = mock(BulkSession.class);
+        BulkManager bulkManager = mock(BulkManager.class);
+        when(bulkManager.open()).thenReturn(session);
+        IndexCatalog indexCatalog = mock(IndexCatalog.class);
+        when(indexCatalog.exists("person")).thenReturn(true);
+        queryCache = mock(QueryCache.class);
+        fieldCatalog = mock(FieldCatalog.class);
+        client = mock(Client.class);
+        when(esTemplate.getClient()).thenReturn(client);
+        searchManager = new SearchManager();
+        ReflectionTestUtils.setField(searchManager, "esTemplate", esTemplate);
+        ReflectionTestUtils.setField(searchManager, "bulkManager", bulkManager);
+        ReflectionTestUtils.setField(searchManager, "indexCatalog", indexCatalog);
+        ReflectionTestUtils.setField(searchManager, "queryCache", queryCache);
+        ReflectionTestUtils.setField(searchManager, "fieldCatalog", fieldCatalog);
+    }
+
+    @Test
+    public void testScrollKeepsOnlyRequestedWindow() {
+        ScrolledPage<?> first = page("s1", "a", "b", "c", "d", "e");
+        ScrolledPage<?> second = page("s2", "f", "g", "h", "i", "j");
+        doReturn(first).when(esTemplate).startScroll(anyLong(), any(SearchQuery.class), eq(String.class));
+        doReturn(second).when(esTemplate).continueScroll(eq("s1"), anyLong(), eq(String.class));
+
+        List<?> res = searchManager.getScrollResults(query(), String.class, 2, 4);
+
+        assertThat(res).containsExactly("e", "f", "g", "h");
+        // window is filled by second batch, no more scrolling
+        verify(esTemplate, never()).continueScroll(eq("s2"), anyLong(), eq(String.class));
+        verify(esTemplate).clearScroll("s2");
+    }
+
+    @Test
+    public void testForceScrollReturnsAllResults() {
+        ScrolledPage<?> first = page("s1", "a", "b");
+        ScrolledPage<?> second = page("s2", "c");
+        ScrolledPage<?> last = page("s3");
+        doReturn(first).when(esTemplate).startScroll(anyLong(), any(SearchQuery.class), eq(String.class));
+        doReturn(second).when(esTemplate).continueScroll(eq("s1"), anyLong(), eq(String.class));
+        doReturn(last).when(esTemplate).continueScroll(eq("s2"), anyLong(), eq(String.class));
+
+        List<?> res = searchManager.getScrollResults(query(), String.class, 0, -1);
+
+        assertThat(res).containsExactly("a", "b", "c");
+        verify(esTemplate).clearScroll("s3");
+    }
+
+    @Test
+    public void testScrollIsClearedWhenScrollingFails() {
+        ScrolledPage<?> first = page("s1", "a");
+        doReturn(first).when(esTemplate).startScroll(anyLong(), any(SearchQuery.class), eq(String.class));
+        when(esTemplate.continueScroll(eq("s1"), anyLong(), eq(String.class)))
+            .thenThrow(new IllegalStateException("scroll expired"));
+
+        assertThatThrownBy(() -> searchManager.getScrollResults(query(), String.class, 0, -1))
+            .isInstanceOf(IllegalStateException.class);
+        verify(esTemplate).clearScroll("s1");
+    }
+
+    @Test
+    public void testSaveDocsStreamAddsObjectsAndJsonStrings() throws Exception {
+        searchManager.saveDocs("person", stream("[{\"a\": 1}, 5, \"{\\\"b\\\": 2}\"]"));
+
+        verify(session, times(2)).add(any());
+        verify(session).addError("Document is not a json object.");
+        verify(session).finish();
+        verify(queryCache).invalidate("person");
+    }
+
+    @Test
+    public void testSaveDocsFinishesSessionOfPartialStream() throws Exception {
+        assertThatThrownBy(() -> searchManager.saveDocs("person",
+            stream("[{\"a\": 1}, {\"b\": ")))
+            .isInstanceOf(IOException.class);
+
+        verify(session).add(any());
+        verify(session).finish();
+        verify(queryCache).invalidate("person");
+    }
+
+    @Test
+    public void testSaveDocsRejectsUnclosedArray() throws Exception {
+        assertThatThrownBy(() -> searchManager.saveDocs("person", stream("[{\"a\": 1}")))
+            .isInstanceOf(IOException.class)
+            .hasMessageContaining("not closed");
+
+        verify(session).add(any());
+        verify(session).finish();
+        verify(queryCache).invalidate("person");
+    }
+
+    @Test
+    public void testSaveDocsRejectsNonArrayStream() throws Exception {
+        assertThatThrownBy(() -> searchManager.saveDocs("person", stream("{\"a\": 1}")))
+            .isInstanceOf(IOException.class)
+            .hasMessageContaining("not a json array");
+
+        verify(session, never()).add(any());
+        verify(session).finish();
+    }
+
+    @Test
+    public void testIgnoreCaseDeleteQueryIsNormalizedTermQuery() {
+        when(fieldCatalog.isNormalized("person", "city")).thenReturn(true);
+        ArgumentCaptor<DeleteByQueryRequest> req = ArgumentCaptor.forClass(DeleteByQueryRequest.class);
+        when(client.execute(eq(DeleteByQueryAction.INSTANCE), req.capture()))
+            .thenThrow(new IllegalStateException("not connected"));
+
+        assertThatThrownBy(() -> searchManager.deleteWithQuery(null, "person", null,
+            "city", "New York", true, 0, false))
+            .isInstanceOf(IllegalStateException.class);
+
+        BoolQueryBuilder query = (BoolQueryBuilder) req.getValue().getSearchRequest().source().query();
+        assertThat(query.filter()).hasSize(1);
+        assertThat(query.filter().get(0)).isInstanceOf(TermQueryBuilder.class);
+        assertThat(((TermQueryBuilder) query.filter().get(0)).fieldName()).isEqualTo("city.normalized");
+        assertThat(query.filter()).noneMatch(q -> q instanceof MatchQueryBuilder);
+    }
+
+    @Test
+    public void testDeleteQueryWithoutCriteriaIsRejected() {
+        assertThatThrownBy(() -> SearchManager.buildDeleteQuery(null, null))
+            .hasMessageContaining("not specified");
+    }
+
+    @Test
+    public void testFailedMultiGetChunkFailsOnlyItsItems() {
+        MultiGetRequest req = new MultiGetRequest()
+            .add("person", "person", "1")
+            .add("person", "person", "2");
+
+        List<MultiGetItemResponse> items = SearchManager.getFailedItems(req,
+            new IllegalStateException("node disconnected"));
+
+        assertThat(items).hasSize(2);
+        assertThat(items).allMatch(MultiGetItemResponse::isFailed);
+        assertThat(items).extracting(MultiGetItemResponse::getId).containsExactly("1", "2");
+        assertThat(items.get(0).getFailure().getMessage()).contains("node disconnected");
+    }
+
+    @Test
+    public void testIgnoreCaseUpdateQueryIsNormalizedTermQuery() {
+        when(fieldCatalog.isNormalized("person", "city")).thenReturn(true);
+
+        QueryBuilder query = updateQuery(true);
+
+        assertThat(query).isInstanceOf(TermQueryBuilder.class);
+        assertThat(((TermQueryBuilder) query).fieldName()).isEqualTo("city.normalized");
+        assertThat(((TermQueryBuilder) query).value()).isEqualTo("new york");
+    }
+
+    @Test
+    public void testUpdateQueryOfNotNormalizedKeyMatchesExactValue() {
+        QueryBuilder query = updateQuery(true);
+
+        assertThat(query).isInstanceOf(BoolQueryBuilder.class);
+        assertThat(((BoolQueryBuilder) query).should())
+            .allMatch(q -> q instanceof TermQueryBuilder)
+            .extracting(q -> ((TermQueryBuilder) q).value())
+            .containsOnly("New York");
+    }
+
+    /**
+     * Runs update by query on person city and returns its search query,
+     * client fails the request once it is captured.
+     */
+    private QueryBuilder updateQuery(boolean ignoreCase) {
+        ArgumentCaptor<UpdateByQueryRequest> req = ArgumentCaptor.forClass(UpdateByQueryRequest.class);
+        when(client.execute(eq(UpdateByQueryAction.INSTANCE), req.capture()))
+            .thenThrow(new IllegalStateException("not connected"));
+
+        assertThatThrownBy(() -> searchManager.updateWithQuery(null, "person", "city",
+            "New York", "state", "NY", ignoreCase, 0, false))
+            .isInstanceOf(IllegalStateException.class);
+        return req.getValue().getSearchRequest().source().query();
+    }
+
+    private static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static SearchQuery query() {
+        return new NativeSearchQueryBuilder().withQuery(QueryBuilders.matchAllQuery()).build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ScrolledPage<?> page(String scrollId, String... docs) {
+        ScrolledPage<String> page = mock(ScrolledPage.class);
+        List<String> content = docs.length == 0 ? Collections.emptyList() : Arrays.asList(docs);
+        when(page.getScrollId()).thenReturn(scrollId);
+        when(page.hasContent()).thenReturn(!content.isEmpty());
+        when(page.getContent()).thenReturn(content);
+        return page;
+    }
+}
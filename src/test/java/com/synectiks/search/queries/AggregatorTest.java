@@ -0,0 +1,139 @@
+package com.synectiks.search.queries;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.elasticsearch.search.aggregations.AbstractAggregationBuilder;
+import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregation;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.terms.TermsAggregationBuilder;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for the {@link Aggregator} paged terms builders.
+ */
+public class AggregatorTest {
+
+    @Test
+    public void testTermsWithoutPageUseTermsAggregation() {
+        Aggregator aggre = terms(0, null);
+
+        assertThat(aggre.isPaged()).isFalse();
+        assertThat(aggre.createAggregationBuilder()).isInstanceOf(TermsAggregationBuilder.class);
+    }
+
+    @Test
+    public void testPagedTermsUseCompositeAggregation() {
+        Aggregator aggre = terms(50, null);
+
+        AbstractAggregationBuilder<?> builder = aggre.createAggregationBuilder();
+
+        assertThat(aggre.isPaged()).isTrue();
+        assertThat(builder).isInstanceOf(CompositeAggregationBuilder.class);
+        CompositeAggregationBuilder composite = (CompositeAggregationBuilder) builder;
+        assertThat(composite.getName()).isEqualTo("terms_city");
+        assertThat(ReflectionTestUtils.getField(composite, "size")).isEqualTo(50);
+        assertThat(ReflectionTestUtils.getField(composite, "after")).isNull();
+    }
+
+    @Test
+    public void testAfterKeyAloneUsesDefaultPageSize() {
+        Aggregator aggre = terms(0, Collections.singletonMap("city", "Pune"));
+
+        CompositeAggregationBuilder composite =
+            (CompositeAggregationBuilder) aggre.createAggregationBuilder();
+
+        assertThat(aggre.isPaged()).isTrue();
+        assertThat(ReflectionTestUtils.getField(composite, "size")).isEqualTo(1000);
+        assertThat(after(composite)).containsEntry("city", "Pune");
+    }
+
+    @Test
+    public void testAfterKeyOfPageStartsNextPage() {
+        Aggregator aggre = terms(2, null);
+        Map<String, Object> afterKey = Collections.singletonMap("city", "Mumbai");
+        CompositeAggregation page = composite("terms_city", afterKey,
+            bucket("Delhi", 4), bucket("Mumbai", 2));
+
+        AggregationResult res = AggregationResult.create(Collections.singletonList(aggre),
+            new Aggregations(Collections.singletonList(page))).get("terms_city");
+
+        assertThat(res.getBuckets()).extracting(AggregationResult.Bucket::getKey)
+            .containsExactly("Delhi", "Mumbai");
+        assertThat(res.getAfterKey()).isEqualTo(afterKey);
+
+        aggre.setAfterKey(res.getAfterKey());
+        CompositeAggregationBuilder next =
+            (CompositeAggregationBuilder) aggre.createAggregationBuilder();
+
+        assertThat(ReflectionTestUtils.getField(next, "size")).isEqualTo(2);
+        assertThat(after(next)).containsEntry("city", "Mumbai");
+    }
+
+    @Test
+    public void testEmptyPageHasNoAfterKey() {
+        Aggregator aggre = terms(2, Collections.singletonMap("city", "Mumbai"));
+        CompositeAggregation page = composite("terms_city",
+            Collections.singletonMap("city", "Mumbai"));
+
+        AggregationResult res = AggregationResult.create(Collections.singletonList(aggre),
+            new Aggregations(Collections.singletonList(page))).get("terms_city");
+
+        assertThat(res.getBuckets()).isEmpty();
+        assertThat(res.getAfterKey()).isNull();
+    }
+
+    @Test
+    public void testPagedTermsWithValuesAreRejected() {
+        Aggregator aggre = terms(50, null);
+        aggre.setValues("[\"Pune\", \"Delhi\"]");
+
+        assertThatThrownBy(aggre::createAggregationBuilder)
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("values");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> after(CompositeAggregationBuilder builder) {
+        return (Map<String, Object>) ReflectionTestUtils.getField(builder, "after");
+    }
+
+    private static Aggregator terms(int pageSize, Map<String, Object> afterKey) {
+        Aggregator aggre = new Aggregator();
+        aggre.setAggreType("terms");
+        aggre.setFieldName("city");
+        aggre.setPageSize(pageSize);
+        aggre.setAfterKey(afterKey);
+        return aggre;
+    }
+
+    private static CompositeAggregation composite(String name, Map<String, Object> afterKey,
+            CompositeAggregation.Bucket... buckets) {
+        CompositeAggregation aggre = mock(CompositeAggregation.class);
+        List<CompositeAggregation.Bucket> list = Arrays.asList(buckets);
+        when(aggre.getName()).thenReturn(name);
+        when(aggre.getType()).thenReturn("composite");
+        doReturn(list).when(aggre).getBuckets();
+        when(aggre.afterKey()).thenReturn(afterKey);
+        return aggre;
+    }
+
+    private static CompositeAggregation.Bucket bucket(String city, long count) {
+        CompositeAggregation.Bucket bucket = mock(CompositeAggregation.Bucket.class);
+        when(bucket.getKey()).thenReturn(Collections.singletonMap("city", city));
+        when(bucket.getKeyAsString()).thenReturn("{city=" + city + "}");
+        when(bucket.getDocCount()).thenReturn(count);
+        when(bucket.getAggregations()).thenReturn(new Aggregations(Collections.emptyList()));
+        return bucket;
+    }
+}
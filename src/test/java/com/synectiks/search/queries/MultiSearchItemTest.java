@@ -0,0 +1,41 @@
+package com.synectiks.search.queries;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the {@link MultiSearchItem} json binding.
+ */
+public class MultiSearchItemTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void testFiltersAndProjectionAreRead() throws Exception {
+        MultiSearchItem item = mapper.readValue("{\"cls\": \"com.a.Person\", "
+            + "\"filters\": {\"name\": \"x\"}, \"pageSize\": 5, "
+            + "\"includes\": \"name,city\", \"docValueFields\": \"age\"}", MultiSearchItem.class);
+
+        assertThat(item.getFilters()).isEqualTo("{\"name\":\"x\"}");
+        assertThat(item.getProjection().getIncludes()).containsExactly("name", "city");
+        assertThat(item.getProjection().hasDocValueFields()).isTrue();
+    }
+
+    @Test
+    public void testItemWithoutProjectionHasNone() throws Exception {
+        MultiSearchItem item = mapper.readValue("{\"filters\": \"{}\"}", MultiSearchItem.class);
+
+        assertThat(item.getFilters()).isEqualTo("{}");
+        assertThat(item.getProjection()).isNull();
+    }
+
+    @Test
+    public void testDerivedPropertiesAreNotWritten() throws Exception {
+        String json = mapper.writeValueAsString(new MultiSearchItem());
+
+        assertThat(json).doesNotContain("aggregation\"").doesNotContain("projection");
+    }
+}
@@ -0,0 +1,45 @@
+package com.synectiks.search.utils;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.elasticsearch.annotations.Document;
+
+import com.synectiks.commons.interfaces.IESEntity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the {@link EntityCatalogGenerator} package scan.
+ */
+public class EntityCatalogGeneratorTest {
+
+    @Test
+    public void testAbstractClassesAndInterfacesAreListed() {
+        List<Map<String, String>> entities = EntityCatalogGenerator.scan(
+            EntityCatalogGeneratorTest.class.getPackage().getName());
+
+        assertThat(entities).extracting(e -> e.get(EntityCatalogGenerator.CLS))
+            .contains(BaseEntity.class.getName(), SubEntity.class.getName())
+            .doesNotContain(EntityCatalogGeneratorTest.class.getName());
+    }
+
+    @Test
+    public void testDocumentIndexIsListed() {
+        List<Map<String, String>> entities = EntityCatalogGenerator.scan(
+            EntityCatalogGeneratorTest.class.getPackage().getName());
+
+        assertThat(entities).filteredOn(e -> BaseEntity.class.getName()
+            .equals(e.get(EntityCatalogGenerator.CLS)))
+            .extracting(e -> e.get(EntityCatalogGenerator.INDEX_NAME))
+            .containsExactly("base");
+    }
+
+    @Document(indexName = "base", type = "base")
+    public abstract static class BaseEntity implements IESEntity {
+    }
+
+    public interface SubEntity extends IESEntity {
+    }
+}
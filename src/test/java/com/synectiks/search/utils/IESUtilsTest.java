@@ -0,0 +1,99 @@
+package com.synectiks.search.utils;
+
+import java.util.Map;
+
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.TermQueryBuilder;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHits;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.elasticsearch.annotations.Document;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for the {@link IESUtils} query, count and entity helpers.
+ */
+public class IESUtilsTest {
+
+    @Test
+    public void testIgnoreCaseKeyQueryUsesNormalizedKeyword() {
+        QueryBuilder query = IESUtils.getKeyQueryBuilder("address.city", "New York", true);
+
+        assertThat(query).isInstanceOf(TermQueryBuilder.class);
+        TermQueryBuilder term = (TermQueryBuilder) query;
+        assertThat(term.fieldName()).isEqualTo("address.city" + IESUtils.NORMALIZED_SUFFIX);
+        assertThat(term.value()).isEqualTo("new york");
+    }
+
+    @Test
+    public void testCaseSensitiveKeyQueryUsesTermsOnFieldAndKeyword() {
+        QueryBuilder query = IESUtils.getKeyQueryBuilder("city", "New York", false);
+
+        assertThat(query).isInstanceOf(BoolQueryBuilder.class);
+        BoolQueryBuilder bool = (BoolQueryBuilder) query;
+        assertThat(bool.should()).hasSize(2);
+        assertThat(bool.should()).allMatch(q -> q instanceof TermQueryBuilder);
+        assertThat(bool.should()).extracting(q -> ((TermQueryBuilder) q).fieldName())
+            .containsExactly("city", "city.keyword");
+        assertThat(bool.minimumShouldMatch()).isEqualTo("1");
+    }
+
+    @Test
+    public void testCountAtLeastIsClampedToLimit() {
+        Map<String, Object> res = IESUtils.getCountAtLeast(response(17, true), 10);
+
+        assertThat(res).containsEntry(IESUtils.COUNT, 10L)
+            .containsEntry(IESUtils.TRUNCATED, true);
+    }
+
+    @Test
+    public void testCountReachingLimitIsTruncated() {
+        Map<String, Object> res = IESUtils.getCountAtLeast(response(10, false), 10);
+
+        assertThat(res).containsEntry(IESUtils.COUNT, 10L)
+            .containsEntry(IESUtils.TRUNCATED, true);
+    }
+
+    @Test
+    public void testCountBelowLimitIsExact() {
+        Map<String, Object> res = IESUtils.getCountAtLeast(response(3, null), 10);
+
+        assertThat(res).containsEntry(IESUtils.COUNT, 3L)
+            .containsEntry(IESUtils.TRUNCATED, false);
+    }
+
+    @Test
+    public void testObjectWhichIsNotEntityHasNoESID() {
+        assertThat(IESUtils.getESID(new Doc())).isNull();
+    }
+
+    @Test
+    public void testDocumentMetadataIsNotResolvedWithoutMappingContext() {
+        EntityMetadata.setMappingContext(null);
+
+        assertThatThrownBy(() -> EntityMetadata.of(Doc.class))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining(Doc.class.getName());
+    }
+
+    private static SearchResponse response(long totalHits, Boolean terminatedEarly) {
+        SearchResponse res = mock(SearchResponse.class);
+        when(res.getHits()).thenReturn(new SearchHits(new SearchHit[0], totalHits, 0f));
+        when(res.isTerminatedEarly()).thenReturn(terminatedEarly);
+        return res;
+    }
+
+    @Document(indexName = "doc")
+    public static class Doc {
+
+        public String getId() {
+            return "1";
+        }
+    }
+}